@@ -0,0 +1,119 @@
+package com.devexed.dalwit.benchmark;
+
+import com.devexed.dalwit.Cursor;
+import com.devexed.dalwit.Query;
+import com.devexed.dalwit.ReadonlyStatement;
+import com.devexed.dalwit.RowBatch;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Iterating all rows of a query, scored per row.
+ */
+@OperationsPerInvocation(DatabaseBenchmark.rowCount)
+public class CursorBenchmark extends DatabaseBenchmark {
+
+    private final Query query = Query.builder("SELECT a, b, c FROM bench")
+            .column("a", Integer.TYPE)
+            .column("b", String.class)
+            .column("c", Long.TYPE)
+            .build();
+
+    private ReadonlyStatement statement;
+    private PreparedStatement jdbcStatement;
+    private RowBatch batch;
+
+    @Override
+    void setUp() throws SQLException {
+        statement = db.prepare(query);
+        batch = new RowBatch(256, query.columns());
+        jdbcStatement = jdbc.prepareStatement(query.sql());
+    }
+
+    @Override
+    void tearDown() throws SQLException {
+        statement.close();
+        jdbcStatement.close();
+    }
+
+    /**
+     * Look up the getter of each column by name on every row.
+     */
+    @Benchmark
+    public void getByName(Blackhole blackhole) {
+        try (Cursor cursor = statement.query()) {
+            while (cursor.next()) {
+                blackhole.consume(cursor.<Integer>get("a"));
+                blackhole.consume(cursor.<String>get("b"));
+                blackhole.consume(cursor.<Long>get("c"));
+            }
+        }
+    }
+
+    /**
+     * Resolve the getter of each column once.
+     */
+    @Benchmark
+    public void getter(Blackhole blackhole) {
+        try (Cursor cursor = statement.query()) {
+            Cursor.Getter<Integer> a = cursor.getter("a");
+            Cursor.Getter<String> b = cursor.getter("b");
+            Cursor.Getter<Long> c = cursor.getter("c");
+
+            while (cursor.next()) {
+                blackhole.consume(a.get());
+                blackhole.consume(b.get());
+                blackhole.consume(c.get());
+            }
+        }
+    }
+
+    /**
+     * Fetch rows into a columnar batch and sum its primitive vectors.
+     */
+    @Benchmark
+    public void batch(Blackhole blackhole) {
+        int a = batch.column("a");
+        int c = batch.column("c");
+
+        try (Cursor cursor = statement.query()) {
+            while (cursor.fetch(batch) > 0) {
+                int[] as = batch.ints(a);
+                long[] cs = batch.longs(c);
+                long sum = 0;
+
+                for (int i = 0; i < batch.size(); i++) sum += as[i] + cs[i];
+
+                blackhole.consume(sum);
+                blackhole.consume(batch.objects(batch.column("b")));
+            }
+        }
+    }
+
+    @Benchmark
+    public void jdbcBoxed(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = jdbcStatement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getObject(1));
+                blackhole.consume(resultSet.getObject(2));
+                blackhole.consume(resultSet.getObject(3));
+            }
+        }
+    }
+
+    @Benchmark
+    public void jdbcTyped(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = jdbcStatement.executeQuery()) {
+            while (resultSet.next()) {
+                blackhole.consume(resultSet.getInt(1));
+                blackhole.consume(resultSet.getString(2));
+                blackhole.consume(resultSet.getLong(3));
+            }
+        }
+    }
+
+}
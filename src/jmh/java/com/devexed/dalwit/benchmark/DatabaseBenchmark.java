@@ -0,0 +1,90 @@
+package com.devexed.dalwit.benchmark;
+
+import com.devexed.dalwit.Connection;
+import com.devexed.dalwit.Database;
+import com.devexed.dalwit.Query;
+import com.devexed.dalwit.Statement;
+import com.devexed.dalwit.Transaction;
+import com.devexed.dalwit.jdbc.JdbcConnection;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.DriverManager;
+import java.util.Properties;
+
+/**
+ * Base state of benchmarks comparing the library to raw JDBC. Opens an in-memory database with a <code>bench</code>
+ * table of {@value #rowCount} rows, along with a raw JDBC connection to the same database.
+ */
+@State(Scope.Thread)
+public abstract class DatabaseBenchmark {
+
+    static final int rowCount = 1000;
+
+    @Param({"h2", "sqlite"})
+    public String driver;
+
+    Connection connection;
+    Database db;
+    java.sql.Connection jdbc;
+
+    @Setup(Level.Trial)
+    public void openDatabase() throws Exception {
+        String name = "dalwit" + System.nanoTime();
+        String driverClass;
+        String url;
+
+        // Named in-memory databases stay alive for as long as a connection to them is open.
+        if (driver.equals("h2")) {
+            driverClass = "org.h2.Driver";
+            url = "jdbc:h2:mem:" + name + ";DATABASE_TO_UPPER=FALSE";
+        } else {
+            driverClass = "org.sqlite.JDBC";
+            url = "jdbc:sqlite:file:" + name + "?mode=memory&cache=shared";
+        }
+
+        connection = new JdbcConnection(driverClass, url, new Properties());
+        db = connection.write();
+        jdbc = DriverManager.getConnection(url);
+
+        Query.of("CREATE TABLE bench (a INTEGER, b VARCHAR(50), c BIGINT)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO bench (a, b, c) VALUES (:a, :b, :c)")
+                .parameter("a", Integer.TYPE)
+                .parameter("b", String.class)
+                .parameter("c", Long.TYPE)
+                .build();
+
+        try (Transaction transaction = db.transact(); Statement statement = transaction.prepare(insertQuery)) {
+            for (int i = 0; i < rowCount; i++) {
+                statement.bind("a", i);
+                statement.bind("b", "row " + i);
+                statement.bind("c", (long) i << 32);
+                statement.execute();
+            }
+
+            transaction.commit();
+        }
+
+        setUp();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDatabase() throws Exception {
+        tearDown();
+        db.close();
+        jdbc.close();
+    }
+
+    /**
+     * Prepare the state of a benchmark once the database is open. JMH does not order setup methods of subclasses, so
+     * they override this instead.
+     */
+    void setUp() throws Exception {
+    }
+
+    /**
+     * Release the state of a benchmark before the database is closed.
+     */
+    void tearDown() throws Exception {
+    }
+
+}
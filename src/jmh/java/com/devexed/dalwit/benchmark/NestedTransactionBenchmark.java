@@ -0,0 +1,108 @@
+package com.devexed.dalwit.benchmark;
+
+import com.devexed.dalwit.Cursor;
+import com.devexed.dalwit.Query;
+import com.devexed.dalwit.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Overhead of deeply nested transactions whose innermost transaction either only runs a read only query, in which case
+ * no savepoint is ever created, or writes, in which case the savepoints of the whole chain are created on the first
+ * write. Compared to raw JDBC creating a savepoint eagerly at every level.
+ */
+public class NestedTransactionBenchmark extends DatabaseBenchmark {
+
+    @Param({"1", "8", "32"})
+    public int depth;
+
+    private final Query readQuery = Query.builder("SELECT b FROM bench WHERE a = :a")
+            .parameter("a", Integer.TYPE)
+            .column("b", String.class)
+            .readOnly(true)
+            .build();
+
+    private final Query insertQuery = Query.builder("INSERT INTO ntx (a) VALUES (:a)")
+            .parameter("a", Integer.TYPE)
+            .build();
+
+    @Override
+    void setUp() {
+        Query.of("CREATE TABLE ntx (a INTEGER)").on(db).execute();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearTable() {
+        Query.of("DELETE FROM ntx").on(db).execute();
+    }
+
+    @Benchmark
+    public String readOnlyLeaf() {
+        try (Transaction transaction = db.transact()) {
+            String value = nest(transaction, depth, false);
+            transaction.commit();
+
+            return value;
+        }
+    }
+
+    @Benchmark
+    public String writeLeaf() {
+        try (Transaction transaction = db.transact()) {
+            String value = nest(transaction, depth, true);
+            transaction.commit();
+
+            return value;
+        }
+    }
+
+    private String nest(Transaction parent, int remaining, boolean write) {
+        try (Transaction nested = parent.transact()) {
+            String value;
+
+            if (remaining > 1) {
+                value = nest(nested, remaining - 1, write);
+            } else if (write) {
+                insertQuery.on(nested).bind("a", 1).execute();
+                value = null;
+            } else {
+                try (Cursor cursor = readQuery.on(nested).bind("a", 1).query()) {
+                    value = cursor.next() ? cursor.get("b") : null;
+                }
+            }
+
+            nested.commit();
+
+            return value;
+        }
+    }
+
+    @Benchmark
+    public String jdbcReadOnlyLeaf() throws SQLException {
+        jdbc.setAutoCommit(false);
+        Savepoint[] savepoints = new Savepoint[depth];
+        String value;
+
+        for (int i = 0; i < depth; i++) savepoints[i] = jdbc.setSavepoint();
+
+        try (PreparedStatement statement = jdbc.prepareStatement(readQuery.sql())) {
+            statement.setInt(1, 1);
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                value = resultSet.next() ? resultSet.getString(1) : null;
+            }
+        }
+
+        for (int i = depth - 1; i >= 0; i--) jdbc.releaseSavepoint(savepoints[i]);
+
+        jdbc.commit();
+        jdbc.setAutoCommit(true);
+
+        return value;
+    }
+
+}
@@ -0,0 +1,98 @@
+package com.devexed.dalwit.benchmark;
+
+import com.devexed.dalwit.Cursor;
+import com.devexed.dalwit.Query;
+import com.devexed.dalwit.ReadonlyStatement;
+import com.devexed.dalwit.util.ObjectBinder;
+import com.devexed.dalwit.util.ObjectDescriptor;
+import com.devexed.dalwit.util.ObjectGetter;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Mapping rows to objects and binding objects to statements.
+ */
+public class ObjectDescriptorBenchmark extends DatabaseBenchmark {
+
+    public static final class Row {
+
+        public final int a;
+        public final String b;
+        public final long c;
+
+        public Row(int a, String b, long c) {
+            this.a = a;
+            this.b = b;
+            this.c = c;
+        }
+
+    }
+
+    private final ObjectDescriptor<Row> descriptor = ObjectDescriptor.of(Row.class, "bench");
+    private final Query selectQuery = descriptor.select().build();
+    private final Query insertQuery = descriptor.insert().build();
+    private final Row row = new Row(1, "row", 1L << 32);
+
+    private ReadonlyStatement selectStatement;
+    private ReadonlyStatement insertStatement;
+    private ObjectBinder<Row> binder;
+    private PreparedStatement jdbcSelectStatement;
+    private PreparedStatement jdbcInsertStatement;
+
+    @Override
+    void setUp() throws SQLException {
+        selectStatement = db.prepare(selectQuery);
+        insertStatement = db.prepare(insertQuery);
+        binder = descriptor.binder(insertStatement);
+        jdbcSelectStatement = jdbc.prepareStatement(selectQuery.sql());
+        jdbcInsertStatement = jdbc.prepareStatement(insertQuery.sql());
+    }
+
+    @Override
+    void tearDown() throws SQLException {
+        selectStatement.close();
+        insertStatement.close();
+        jdbcSelectStatement.close();
+        jdbcInsertStatement.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(rowCount)
+    public void map(Blackhole blackhole) {
+        try (Cursor cursor = selectStatement.query()) {
+            ObjectGetter<Row> getter = descriptor.getter(cursor);
+            while (cursor.next()) blackhole.consume(getter.get());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(rowCount)
+    public void jdbcMap(Blackhole blackhole) throws SQLException {
+        try (ResultSet resultSet = jdbcSelectStatement.executeQuery()) {
+            int a = resultSet.findColumn("a");
+            int b = resultSet.findColumn("b");
+            int c = resultSet.findColumn("c");
+
+            while (resultSet.next()) {
+                blackhole.consume(new Row(resultSet.getInt(a), resultSet.getString(b), resultSet.getLong(c)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void bind() {
+        binder.bind(row);
+    }
+
+    @Benchmark
+    public void jdbcBind() throws SQLException {
+        jdbcInsertStatement.setInt(1, row.a);
+        jdbcInsertStatement.setString(2, row.b);
+        jdbcInsertStatement.setLong(3, row.c);
+    }
+
+}
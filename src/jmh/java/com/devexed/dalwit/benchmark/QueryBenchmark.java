@@ -0,0 +1,48 @@
+package com.devexed.dalwit.benchmark;
+
+import com.devexed.dalwit.Query;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Building and parsing queries.
+ */
+@State(Scope.Thread)
+public class QueryBenchmark {
+
+    private static final String sql = "SELECT a, b, c FROM bench WHERE a > :a AND b <> :b ORDER BY a";
+
+    private final Query query = Query.builder(sql)
+            .parameter("a", Integer.TYPE)
+            .parameter("b", String.class)
+            .column("a", Integer.TYPE)
+            .column("b", String.class)
+            .column("c", Long.TYPE)
+            .build();
+
+    @Benchmark
+    public Query build() {
+        return Query.builder(sql)
+                .parameter("a", Integer.TYPE)
+                .parameter("b", String.class)
+                .column("a", Integer.TYPE)
+                .column("b", String.class)
+                .column("c", Long.TYPE)
+                .build();
+    }
+
+    @Benchmark
+    public Query of() {
+        return Query.of("SELECT a, b, c FROM bench ORDER BY a");
+    }
+
+    @Benchmark
+    public String fingerprint() {
+        return Query.builder(sql).parameter("a", Integer.TYPE).parameter("b", String.class).build().fingerprint();
+    }
+
+    @Benchmark
+    public String sql() {
+        return query.sql();
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.devexed.dalwit.benchmark;
+
+import com.devexed.dalwit.Cursor;
+import com.devexed.dalwit.Query;
+import com.devexed.dalwit.ReadonlyStatement;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Preparing statements, resolving and using parameter binders, and resolving the columns of queries.
+ */
+public class StatementBenchmark extends DatabaseBenchmark {
+
+    private final Query query = Query.builder("SELECT a, b, c FROM bench WHERE a < :a")
+            .parameter("a", Integer.TYPE)
+            .column("a", Integer.TYPE)
+            .column("b", String.class)
+            .column("c", Long.TYPE)
+            .build();
+
+    private final Integer value = 1;
+
+    private ReadonlyStatement statement;
+    private ReadonlyStatement.Binder<Integer> binder;
+    private PreparedStatement jdbcStatement;
+
+    @Override
+    void setUp() throws SQLException {
+        statement = db.prepare(query);
+        binder = statement.binder("a");
+        binder.bind(value);
+        jdbcStatement = jdbc.prepareStatement(query.sql());
+        jdbcStatement.setInt(1, value);
+    }
+
+    @Override
+    void tearDown() throws SQLException {
+        statement.close();
+        jdbcStatement.close();
+    }
+
+    @Benchmark
+    public void prepare() {
+        db.prepare(query).close();
+    }
+
+    @Benchmark
+    public void jdbcPrepare() throws SQLException {
+        jdbc.prepareStatement(query.sql()).close();
+    }
+
+    @Benchmark
+    public ReadonlyStatement.Binder<Integer> binder() {
+        return statement.binder("a");
+    }
+
+    @Benchmark
+    public void bind() {
+        binder.bind(value);
+    }
+
+    @Benchmark
+    public void bindByName() {
+        statement.bind("a", value);
+    }
+
+    @Benchmark
+    public void jdbcBind() throws SQLException {
+        jdbcStatement.setInt(1, value);
+    }
+
+    /**
+     * Execute a query with a single row, measuring the resolution of its columns.
+     */
+    @Benchmark
+    public Cursor.Getter<?> query() {
+        try (Cursor cursor = statement.query()) {
+            return cursor.getter("c");
+        }
+    }
+
+    @Benchmark
+    public int jdbcQuery() throws SQLException {
+        try (ResultSet resultSet = jdbcStatement.executeQuery()) {
+            return resultSet.findColumn("c");
+        }
+    }
+
+}
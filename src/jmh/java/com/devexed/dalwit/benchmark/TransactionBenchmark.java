@@ -0,0 +1,92 @@
+package com.devexed.dalwit.benchmark;
+
+import com.devexed.dalwit.Query;
+import com.devexed.dalwit.Transaction;
+import org.openjdk.jmh.annotations.*;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+
+/**
+ * Overhead of root and nested transactions around a single insert, and of nested transactions which never write and
+ * so never create a savepoint.
+ */
+public class TransactionBenchmark extends DatabaseBenchmark {
+
+    private final Query insertQuery = Query.builder("INSERT INTO tx (a) VALUES (:a)")
+            .parameter("a", Integer.TYPE)
+            .build();
+
+    @Override
+    void setUp() {
+        Query.of("CREATE TABLE tx (a INTEGER)").on(db).execute();
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearTable() {
+        Query.of("DELETE FROM tx").on(db).execute();
+    }
+
+    @Benchmark
+    public void transaction() {
+        try (Transaction transaction = db.transact()) {
+            insertQuery.on(transaction).bind("a", 1).execute();
+            transaction.commit();
+        }
+    }
+
+    @Benchmark
+    public void nestedTransaction() {
+        try (Transaction transaction = db.transact()) {
+            try (Transaction nested = transaction.transact()) {
+                insertQuery.on(nested).bind("a", 1).execute();
+                nested.commit();
+            }
+
+            transaction.commit();
+        }
+    }
+
+    @Benchmark
+    public void emptyNestedTransaction() {
+        try (Transaction transaction = db.transact()) {
+            insertQuery.on(transaction).bind("a", 1).execute();
+
+            try (Transaction nested = transaction.transact()) {
+                nested.commit();
+            }
+
+            transaction.commit();
+        }
+    }
+
+    @Benchmark
+    public void jdbcTransaction() throws SQLException {
+        jdbc.setAutoCommit(false);
+
+        try (PreparedStatement statement = jdbc.prepareStatement(insertQuery.sql())) {
+            statement.setInt(1, 1);
+            statement.executeUpdate();
+        }
+
+        jdbc.commit();
+        jdbc.setAutoCommit(true);
+    }
+
+    @Benchmark
+    public void jdbcSavepoint() throws SQLException {
+        jdbc.setAutoCommit(false);
+        Savepoint savepoint = jdbc.setSavepoint();
+
+        try (PreparedStatement statement = jdbc.prepareStatement(insertQuery.sql())) {
+            statement.setInt(1, 1);
+            statement.executeUpdate();
+        }
+
+        jdbc.releaseSavepoint(savepoint);
+        jdbc.commit();
+        jdbc.setAutoCommit(true);
+    }
+
+}
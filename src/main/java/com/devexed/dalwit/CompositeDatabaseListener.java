@@ -0,0 +1,81 @@
+package com.devexed.dalwit;
+
+import java.util.ArrayList;
+
+/**
+ * Listener fanning out every operation to multiple listeners, in order. Listeners and probes which ignore all
+ * operations are left out, so combining a single real listener with {@link DatabaseListener#NONE} costs nothing.
+ *
+ * @see DatabaseListener#of(DatabaseListener...)
+ */
+final class CompositeDatabaseListener implements DatabaseListener {
+
+    private final DatabaseListener[] listeners;
+
+    CompositeDatabaseListener(DatabaseListener[] listeners) {
+        this.listeners = listeners;
+    }
+
+    @Override
+    public Probe statement(Query query, int depth) {
+        ArrayList<Probe> probes = new ArrayList<>(listeners.length);
+        for (DatabaseListener listener : listeners) probes.add(listener.statement(query, depth));
+
+        return probe(probes);
+    }
+
+    @Override
+    public Probe transaction(int depth) {
+        ArrayList<Probe> probes = new ArrayList<>(listeners.length);
+        for (DatabaseListener listener : listeners) probes.add(listener.transaction(depth));
+
+        return probe(probes);
+    }
+
+    @Override
+    public Probe connection() {
+        ArrayList<Probe> probes = new ArrayList<>(listeners.length);
+        for (DatabaseListener listener : listeners) probes.add(listener.connection());
+
+        return probe(probes);
+    }
+
+    private static Probe probe(ArrayList<Probe> probes) {
+        probes.removeIf(probe -> probe == Probe.NONE);
+        if (probes.isEmpty()) return Probe.NONE;
+        if (probes.size() == 1) return probes.get(0);
+
+        return new CompositeProbe(probes.toArray(new Probe[0]));
+    }
+
+    private static final class CompositeProbe implements Probe {
+
+        private final Probe[] probes;
+
+        private CompositeProbe(Probe[] probes) {
+            this.probes = probes;
+        }
+
+        @Override
+        public void begin(Operation operation) {
+            for (Probe probe : probes) probe.begin(operation);
+        }
+
+        @Override
+        public void end(Operation operation, long count) {
+            for (Probe probe : probes) probe.end(operation, count);
+        }
+
+        @Override
+        public void fail(Operation operation, RuntimeException exception) {
+            for (Probe probe : probes) probe.fail(operation, exception);
+        }
+
+        @Override
+        public void bound(String parameter, Object value) {
+            for (Probe probe : probes) probe.bound(parameter, value);
+        }
+
+    }
+
+}
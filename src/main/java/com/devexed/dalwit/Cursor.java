@@ -54,6 +54,36 @@ public interface Cursor extends Closeable {
         return this.<T>getter(column).get();
     }
 
+    /**
+     * Fetch the following rows into a columnar batch, moving the cursor to the last row fetched. Cursors over results
+     * with primitive columns should override this to fill the batch without boxing each value.
+     *
+     * @param batch The batch to fill, replacing its previous rows.
+     * @return The number of rows fetched, which is less than the capacity of the batch only once the cursor is
+     * exhausted, and zero after that.
+     * @throws DatabaseException If the cursor is closed or a column of the batch is not in the cursor.
+     */
+    default int fetch(RowBatch batch) {
+        Getter<?>[] getters = new Getter<?>[batch.columnCount()];
+
+        for (int c = 0; c < getters.length; c++) {
+            getters[c] = getter(batch.name(c));
+            if (getters[c] == null) throw new DatabaseException("No column " + batch.name(c) + " in cursor");
+        }
+
+        batch.clear();
+        int row = 0;
+
+        while (row < batch.capacity() && next()) {
+            for (int c = 0; c < getters.length; c++) batch.set(c, row, getters[c].get());
+            row++;
+        }
+
+        batch.size(row);
+
+        return row;
+    }
+
     interface Getter<T> {
 
         T get();
@@ -1,5 +1,7 @@
 package com.devexed.dalwit;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Database supporting transactions (modifying the database).
  */
@@ -23,4 +25,47 @@ public interface Database extends ReadonlyDatabase {
      */
     Transaction transact();
 
+    /**
+     * Start a transaction to update the database with a deadline. Statements run within the transaction, including its
+     * child transactions, are aborted with a {@link QueryTimeoutException} once the deadline has passed.
+     *
+     * @param timeout The time from now until the deadline.
+     * @param unit    The unit of the timeout.
+     * @return The transaction which when committed will update the database.
+     * @throws DatabaseException If the transaction could not be started, or the database does not support deadlines.
+     */
+    @Override
+    default Transaction transact(long timeout, TimeUnit unit) {
+        throw new DatabaseException("Transaction deadlines are not supported by " + getClass().getName());
+    }
+
+    /**
+     * Run work in a transaction and commit it, retrying the work if it fails transiently according to the default
+     * retry policy.
+     *
+     * @param work The work to run. Must be safe to run multiple times.
+     * @param <T>  The type of the result of the work.
+     * @return The result of the work.
+     * @throws DatabaseException If the work could not be run and committed.
+     * @see RetryPolicy#defaults()
+     */
+    default <T> T transact(Transaction.Work<T> work) {
+        return transact(work, RetryPolicy.defaults());
+    }
+
+    /**
+     * Run work in a transaction and commit it, retrying the work if it fails transiently according to a retry policy.
+     * Retrying is only effective for root transactions, since a nested transaction can not release the locks held by
+     * its parents.
+     *
+     * @param work   The work to run. Must be safe to run multiple times.
+     * @param policy The retry policy.
+     * @param <T>    The type of the result of the work.
+     * @return The result of the work.
+     * @throws DatabaseException If the work could not be run and committed.
+     */
+    default <T> T transact(Transaction.Work<T> work, RetryPolicy policy) {
+        return policy.transact(this, work);
+    }
+
 }
@@ -3,8 +3,11 @@ package com.devexed.dalwit;
 /**
  * An exception which occurs when database access fails for any reason. Wraps underlying exception types thrown by the
  * database implementation.
+ *
+ * @see QueryTimeoutException
+ * @see QueryCancelledException
  */
-public final class DatabaseException extends RuntimeException {
+public class DatabaseException extends RuntimeException {
 
     public DatabaseException(String s) {
         super(s);
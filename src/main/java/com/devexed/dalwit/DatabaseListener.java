@@ -0,0 +1,162 @@
+package com.devexed.dalwit;
+
+import java.util.ArrayList;
+
+/**
+ * <p>Listener of the operations performed by the databases opened by a {@link Connection}, and the statements,
+ * cursors and transactions of those databases. Each statement and transaction receives its own {@link Probe} which is
+ * notified when operations begin and end, allowing implementations to measure them.</p>
+ * <p>Probes are only ever called from the thread using the statement or transaction they belong to. Listeners
+ * themselves must be thread safe since a connection may open databases on multiple threads.</p>
+ */
+public interface DatabaseListener {
+
+    /**
+     * Listener which ignores all operations.
+     */
+    DatabaseListener NONE = new DatabaseListener() {};
+
+    /**
+     * Combine listeners into one, for example to collect metrics and log slow queries on the same connection. Every
+     * probe call is passed on to the probes of all listeners, in the order the listeners are given.
+     *
+     * @param listeners The listeners to combine.
+     * @return The listener notifying all of the listeners.
+     */
+    static DatabaseListener of(DatabaseListener... listeners) {
+        ArrayList<DatabaseListener> active = new ArrayList<>(listeners.length);
+
+        for (DatabaseListener listener : listeners) {
+            if (listener != NONE) active.add(listener);
+        }
+
+        if (active.isEmpty()) return NONE;
+        if (active.size() == 1) return active.get(0);
+
+        return new CompositeDatabaseListener(active.toArray(new DatabaseListener[0]));
+    }
+
+    /**
+     * Operations reported to probes.
+     */
+    enum Operation {
+        /**
+         * Opening a database, reported to the probe returned by {@link #connection()}.
+         */
+        CONNECT,
+        /**
+         * Preparing a statement.
+         */
+        PREPARE,
+        /**
+         * Binding a value to a parameter of a statement.
+         */
+        BIND,
+        /**
+         * Executing a query, up until its cursor is ready to iterate.
+         */
+        QUERY,
+        /**
+         * Executing an update, execute or insert statement. Ends with the number of affected rows, or -1 if unknown.
+         */
+        EXECUTE,
+        /**
+         * Moving a cursor to its next row. Ends with 1 if the cursor moved to a row, or 0 if it moved past the last.
+         */
+        FETCH,
+        /**
+         * The lifetime of a cursor from its creation until it is closed. Ends with the number of rows fetched.
+         */
+        ITERATE,
+        /**
+         * Closing a statement.
+         */
+        CLOSE,
+        /**
+         * Committing a transaction.
+         */
+        COMMIT,
+        /**
+         * Rolling back a transaction.
+         */
+        ROLLBACK
+    }
+
+    /**
+     * Called when a statement is about to be prepared.
+     *
+     * @param query The query of the statement.
+     * @param depth The transaction nesting depth of the database preparing the statement, zero outside transactions.
+     * @return The probe receiving the operations of the statement and its cursors.
+     */
+    default Probe statement(Query query, int depth) {
+        return Probe.NONE;
+    }
+
+    /**
+     * Called when a transaction is opened.
+     *
+     * @param depth The nesting depth of the transaction, one for root transactions.
+     * @return The probe receiving the operations of the transaction.
+     */
+    default Probe transaction(int depth) {
+        return Probe.NONE;
+    }
+
+    /**
+     * Called when a database is about to be opened.
+     *
+     * @return The probe receiving the connect operation.
+     */
+    default Probe connection() {
+        return Probe.NONE;
+    }
+
+    /**
+     * Receives the operations of a single statement, transaction or connection attempt.
+     */
+    interface Probe {
+
+        /**
+         * Probe which ignores all operations.
+         */
+        Probe NONE = new Probe() {};
+
+        /**
+         * Called when an operation begins.
+         *
+         * @param operation The operation.
+         */
+        default void begin(Operation operation) {
+        }
+
+        /**
+         * Called when an operation ends successfully.
+         *
+         * @param operation The operation.
+         * @param count     A count related to the operation. See {@link Operation} for details, zero otherwise.
+         */
+        default void end(Operation operation, long count) {
+        }
+
+        /**
+         * Called instead of {@link #end} when an operation fails.
+         *
+         * @param operation The operation.
+         * @param exception The exception which caused the failure.
+         */
+        default void fail(Operation operation, RuntimeException exception) {
+        }
+
+        /**
+         * Called during a {@link Operation#BIND} operation with the value bound to the parameter.
+         *
+         * @param parameter The name of the parameter.
+         * @param value     The bound value.
+         */
+        default void bound(String parameter, Object value) {
+        }
+
+    }
+
+}
@@ -1,18 +1,36 @@
 package com.devexed.dalwit;
 
 import com.devexed.dalwit.util.ClosingCursor;
+import com.devexed.dalwit.util.MaterializedCursor;
+import com.devexed.dalwit.util.NameTable;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
 
 public final class Query {
 
     private static Map<String, Class<?>> emptyTypeMap = Collections.emptyMap();
     private static Map<String, Integer> emptyListSizeMap = Collections.emptyMap();
+    private static final Pattern parameterListPattern = Pattern.compile("\\?(?: ?, ?\\?)+");
 
     public static String parameterListIndexer(String parameter, int index) {
         return parameter + '$' + index;
     }
 
+    /**
+     * The number of elements of the statement shape used to bind a list of a given size to a dynamic list parameter.
+     * Sizes are rounded up to the nearest power of two so only a handful of shapes are ever prepared per query.
+     *
+     * @param size The size of the bound list.
+     * @return The size of the bucket the list is padded to.
+     * @see QueryBuilder#listParameter(String, Class)
+     */
+    public static int listBucketSize(int size) {
+        return size <= 1 ? 1 : Integer.highestOneBit(size - 1) << 1;
+    }
+
     /**
      * Start building a new query.
      * @param sql The query's SQL
@@ -28,7 +46,7 @@ public final class Query {
      * @return The built query
      */
     public static Query of(String sql) {
-        return new Query(sql, emptyTypeMap, emptyListSizeMap, emptyTypeMap, emptyTypeMap, true);
+        return new Query(sql, emptyTypeMap, emptyListSizeMap, emptyTypeMap, emptyTypeMap, emptyTypeMap, Options.DEFAULT, true);
     }
 
     /**
@@ -41,27 +59,37 @@ public final class Query {
     public static Query of(String sql, Map<String, Class<?>> types) {
         Map<String, Class<?>> lowerCaseTypes = toLowerCaseMap(types);
 
-        return new Query(sql, lowerCaseTypes, emptyListSizeMap, lowerCaseTypes, emptyTypeMap, false);
+        return new Query(sql, lowerCaseTypes, emptyListSizeMap, lowerCaseTypes, emptyTypeMap, emptyTypeMap, Options.DEFAULT, false);
     }
 
     private static LinkedHashMap<String, Class<?>> toLowerCaseMap(Map<String, Class<?>> types) {
         LinkedHashMap<String, Class<?>> result = new LinkedHashMap<>(types.size());
 
         for (Map.Entry<String, Class<?>> e : types.entrySet()) {
-            result.put(e.getKey().toLowerCase(), e.getValue());
+            result.put(NameTable.canonical(e.getKey()), e.getValue());
         }
 
         return result;
     }
 
+    private final String sql;
     private final String rawSql;
     private final Map<String, Class<?>> parameters;
     private final Map<String, Integer> parameterListsSizes;
     private final Map<String, Class<?>> columns;
     private final Map<String, Class<?>> keys;
     private final Map<String, int[]> parameterIndices;
-
-    private Query(String sql, Map<String, Class<?>> parameters, Map<String, Integer> parameterListsSizes, Map<String, Class<?>> columns, Map<String, Class<?>> keys, boolean checkParameters) {
+    private final NameTable<Parameter> parameterTable;
+    private final NameTable<Column> columnTable;
+    private final Map<String, Class<?>> dynamicListParameters;
+    private final Options options;
+    private final ConcurrentHashMap<List<Integer>, Query> sizedQueries = new ConcurrentHashMap<>();
+    private String fingerprint;
+
+    private Query(String sql, Map<String, Class<?>> parameters, Map<String, Integer> parameterListsSizes, Map<String, Class<?>> columns, Map<String, Class<?>> keys, Map<String, Class<?>> dynamicListParameters, Options options, boolean checkParameters) {
+        this.sql = sql;
+        this.options = options;
+        this.dynamicListParameters = dynamicListParameters;
         this.parameterListsSizes = parameterListsSizes;
         this.columns = columns;
         this.keys = keys;
@@ -79,17 +107,18 @@ public final class Query {
 
             for (int i = 0; i < indices.length; i++) indices[i] = boxedIndices.get(i);
 
-            mutableParameterIndices.put(e.getKey().toLowerCase(), indices);
+            mutableParameterIndices.put(NameTable.canonical(e.getKey()), indices);
         }
 
         this.parameterIndices = Collections.unmodifiableMap(mutableParameterIndices);
 
         if (checkParameters) {
             // Ensure no parameters are left undefined
-            if (!parameters.keySet().containsAll(mutableParameterIndices.keySet())) {
-                LinkedHashSet<String> missingTypes = new LinkedHashSet<>(mutableParameterIndices.keySet());
-                missingTypes.removeAll(parameters.keySet());
+            LinkedHashSet<String> missingTypes = new LinkedHashSet<>(mutableParameterIndices.keySet());
+            missingTypes.removeAll(parameters.keySet());
+            missingTypes.removeAll(dynamicListParameters.keySet());
 
+            if (!missingTypes.isEmpty()) {
                 StringBuilder params = new StringBuilder();
                 Iterator<String> missingTypesIterator = missingTypes.iterator();
                 params.append(missingTypesIterator.next());
@@ -112,12 +141,65 @@ public final class Query {
 
             this.parameters = Collections.unmodifiableMap(mutableParameters);
         }
+
+        // Canonicalize names once into symbol tables, so statements and cursors can look them up by the names users
+        // pass in without lower casing them.
+        parameterTable = new NameTable<>(this.parameters.size() + parameterListsSizes.size() + dynamicListParameters.size());
+        int parameterIndex = 0;
+
+        for (Map.Entry<String, Class<?>> e : this.parameters.entrySet()) {
+            String name = NameTable.canonical(e.getKey());
+            parameterTable.put(name, new Parameter(name, parameterIndex, e.getValue(), parameterIndices.get(name), null, false));
+            parameterIndex++;
+        }
+
+        for (Map.Entry<String, Class<?>> e : dynamicListParameters.entrySet()) {
+            String name = NameTable.canonical(e.getKey());
+            parameterTable.put(name, new Parameter(name, parameterIndex, e.getValue(), parameterIndices.get(name), null, true));
+            parameterIndex++;
+        }
+
+        for (Map.Entry<String, Integer> e : parameterListsSizes.entrySet()) {
+            String name = NameTable.canonical(e.getKey());
+            Parameter[] elements = new Parameter[e.getValue()];
+
+            for (int i = 0; i < elements.length; i++) elements[i] = parameterTable.get(parameterListIndexer(name, i));
+
+            Class<?> type = elements[0] != null ? elements[0].type : null;
+            parameterTable.put(name, new Parameter(name, parameterIndex, type, parameterIndices.get(name), elements, false));
+            parameterIndex++;
+        }
+
+        columnTable = new NameTable<>(columns.size());
+
+        for (Map.Entry<String, Class<?>> e : columns.entrySet()) {
+            String name = NameTable.canonical(e.getKey());
+            columnTable.put(name, new Column(name, e.getValue()));
+        }
     }
 
     public String sql() {
         return rawSql;
     }
 
+    /**
+     * A normalized form of the query SQL which identifies queries of the same shape, for example when collecting
+     * metrics. Literals are replaced by <code>?</code>, lists of parameters are collapsed into <code>?...</code>,
+     * comments are removed, whitespace is collapsed and unquoted identifiers and keywords are lower cased.
+     *
+     * @return The fingerprint of the query.
+     */
+    public String fingerprint() {
+        String fingerprint = this.fingerprint;
+
+        if (fingerprint == null) {
+            fingerprint = parameterListPattern.matcher(normalizeSql(rawSql)).replaceAll("?...");
+            this.fingerprint = fingerprint;
+        }
+
+        return fingerprint;
+    }
+
     public Map<String, Class<?>> columns() {
         return columns;
     }
@@ -134,16 +216,93 @@ public final class Query {
         return parameterListsSizes;
     }
 
+    /**
+     * @return The options applied to statements when they are prepared.
+     */
+    public Options options() {
+        return options;
+    }
+
+    /**
+     * @return The element types of the parameters bound to lists of any size at execution time.
+     * @see QueryBuilder#listParameter(String, Class)
+     */
+    public Map<String, Class<?>> dynamicListParameters() {
+        return dynamicListParameters;
+    }
+
+    /**
+     * Get the query with its dynamic list parameters fixed to the given sizes. The sized queries are created once and
+     * then reused.
+     *
+     * @param listSizes The size of every dynamic list parameter.
+     * @return The query with fixed size list parameters in place of the dynamic list parameters.
+     */
+    public Query withListSizes(Map<String, Integer> listSizes) {
+        ArrayList<Integer> sizes = new ArrayList<>(dynamicListParameters.size());
+
+        for (String name : dynamicListParameters.keySet()) {
+            Integer size = listSizes.get(name);
+
+            if (size == null || size <= 0) {
+                throw new DatabaseException("List parameter " + name + " must have a size of one or greater");
+            }
+
+            sizes.add(size);
+        }
+
+        return sizedQueries.computeIfAbsent(sizes, s -> {
+            LinkedHashMap<String, Class<?>> sizedParameters = new LinkedHashMap<>(parameters);
+            LinkedHashMap<String, Integer> sizedListSizes = new LinkedHashMap<>(parameterListsSizes);
+            int i = 0;
+
+            for (Map.Entry<String, Class<?>> e : dynamicListParameters.entrySet()) {
+                int size = s.get(i);
+                sizedListSizes.put(e.getKey(), size);
+
+                for (int j = 0; j < size; j++) sizedParameters.put(parameterListIndexer(e.getKey(), j), e.getValue());
+
+                i++;
+            }
+
+            return new Query(sql, Collections.unmodifiableMap(sizedParameters),
+                    Collections.unmodifiableMap(sizedListSizes), columns, keys, emptyTypeMap, options, true);
+        });
+    }
+
+    /**
+     * @param name The name of the parameter, in any case.
+     * @return The parameter, or null if no parameter of the name is defined.
+     */
+    public Parameter parameter(String name) {
+        return parameterTable.get(name);
+    }
+
+    /**
+     * @return The number of parameters, including list parameters and each of their elements.
+     */
+    public int parameterCount() {
+        return parameterTable.size();
+    }
+
+    /**
+     * @param name The name of the column, in any case.
+     * @return The column, or null if no column of the name is defined.
+     */
+    public Column column(String name) {
+        return columnTable.get(name);
+    }
+
     public Map<String, Class<?>> keys() {
         return keys;
     }
 
     public ReadonlyStatementBuilder on(ReadonlyDatabase database) {
-        return new ReadonlyStatementBuilder(database.prepare(this));
+        return new ReadonlyStatementBuilder(this, database.prepare(this));
     }
 
     public StatementBuilder on(Database database) {
-        return new StatementBuilder(database.prepare(this));
+        return new StatementBuilder(this, database.prepare(this));
     }
 
     public static class QueryBuilder {
@@ -153,6 +312,13 @@ public final class Query {
         private final LinkedHashMap<String, Integer> parameterListSizes;
         private final LinkedHashMap<String, Class<?>> columns;
         private final LinkedHashMap<String, Class<?>> keys;
+        private final LinkedHashMap<String, Class<?>> dynamicListParameters;
+        private int fetchSize = 0;
+        private int maxRows = 0;
+        private ResultType resultType = ResultType.FORWARD_ONLY;
+        private Concurrency concurrency = Concurrency.READ_ONLY;
+        private long timeoutNanos = 0;
+        private boolean readOnly = false;
 
         private QueryBuilder(String sql) {
             this.sql = sql;
@@ -160,11 +326,12 @@ public final class Query {
             parameterListSizes = new LinkedHashMap<>();
             columns = new LinkedHashMap<>();
             keys = new LinkedHashMap<>();
+            dynamicListParameters = new LinkedHashMap<>();
         }
 
         private QueryBuilder add(String desc, Map<String, Class<?>> map, String name, Class<?> type) {
             // Ensure columns are not declared multiple times with different types
-            name = name.toLowerCase();
+            name = NameTable.canonical(name);
             Class<?> t = map.get(name);
 
             if (t != null && !t.equals(type)) {
@@ -205,7 +372,7 @@ public final class Query {
                 throw new DatabaseException("List parameters size must be one or greater");
             }
 
-            parameterListSizes.put(name, size);
+            parameterListSizes.put(NameTable.canonical(name), size);
 
             for (int i = 0; i < size; i++) {
                 parameter(parameterListIndexer(name, i), type);
@@ -214,6 +381,20 @@ public final class Query {
             return this;
         }
 
+        /**
+         * Declare a list parameter which can be bound to a list of any size, for example with
+         * <code>WHERE id IN :ids</code>. The list is padded to the next power of two (see {@link #listBucketSize}) by
+         * repeating its last value, so that only a few statement shapes are prepared. Binding an empty list is rejected,
+         * since no padding value would be correct for both <code>IN</code> and <code>NOT IN</code>.
+         *
+         * @param name The name of the parameter.
+         * @param type The type of the list elements. Primitive types are bound as their nullable boxed types.
+         * @return This builder.
+         */
+        public QueryBuilder listParameter(String name, Class<?> type) {
+            return add("Parameter", dynamicListParameters, name, boxedType(type));
+        }
+
         public QueryBuilder key(String name, Class<?> type) {
             return add("Key", keys, name, type);
         }
@@ -226,6 +407,87 @@ public final class Query {
             return this;
         }
 
+        /**
+         * Hint the number of rows to fetch from the database at a time. Drivers which otherwise read the entire result
+         * into memory before the first row is returned can then stream large results in bounded memory.
+         *
+         * @param fetchSize The number of rows, or zero to use the driver's default.
+         * @return This builder.
+         */
+        public QueryBuilder fetchSize(int fetchSize) {
+            if (fetchSize < 0) throw new DatabaseException("Fetch size must be zero or greater");
+
+            this.fetchSize = fetchSize;
+
+            return this;
+        }
+
+        /**
+         * Limit the number of rows returned by queries, silently dropping any rows beyond it.
+         *
+         * @param maxRows The maximum number of rows, or zero for no limit.
+         * @return This builder.
+         */
+        public QueryBuilder maxRows(int maxRows) {
+            if (maxRows < 0) throw new DatabaseException("Max rows must be zero or greater");
+
+            this.maxRows = maxRows;
+
+            return this;
+        }
+
+        /**
+         * @param resultType Whether cursors over the result only move forward, the default, or can seek in any
+         *                   direction.
+         * @return This builder.
+         */
+        public QueryBuilder resultType(ResultType resultType) {
+            this.resultType = resultType;
+
+            return this;
+        }
+
+        /**
+         * @param concurrency Whether the result is read only, the default, or updatable.
+         * @return This builder.
+         */
+        public QueryBuilder concurrency(Concurrency concurrency) {
+            this.concurrency = concurrency;
+
+            return this;
+        }
+
+        /**
+         * Abort statements of the query which run longer than a timeout with a {@link QueryTimeoutException}. For
+         * queries, the timeout covers both executing the query and iterating the cursor over its result.
+         *
+         * @param timeout The timeout, or zero for no timeout.
+         * @param unit    The unit of the timeout.
+         * @return This builder.
+         */
+        public QueryBuilder timeout(long timeout, TimeUnit unit) {
+            if (timeout < 0) throw new DatabaseException("Timeout must be zero or greater");
+
+            this.timeoutNanos = unit.toNanos(timeout);
+
+            return this;
+        }
+
+        /**
+         * Declare that the query only reads from the database. Queries may modify data, for example with
+         * <code>INSERT ... RETURNING</code>, <code>SELECT ... FOR UPDATE</code> or functions with side effects, so a
+         * nested transaction sets its savepoint before running a query unless it is declared read only. Transactions
+         * which only run read only queries never set savepoints.
+         *
+         * @param readOnly True if the query never modifies data.
+         * @return This builder.
+         */
+        public QueryBuilder readOnly(boolean readOnly) {
+            this.readOnly = readOnly;
+
+            return this;
+        }
+
         public Query build() {
             return new Query(
                     sql,
@@ -233,6 +495,8 @@ public final class Query {
                     Collections.unmodifiableMap(parameterListSizes),
                     Collections.unmodifiableMap(columns),
                     Collections.unmodifiableMap(keys),
+                    Collections.unmodifiableMap(dynamicListParameters),
+                    new Options(fetchSize, maxRows, resultType, concurrency, timeoutNanos, readOnly),
                     true);
         }
 
@@ -246,11 +510,207 @@ public final class Query {
 
     }
 
+    /**
+     * The direction cursors over the result of a query can move in.
+     */
+    public enum ResultType {
+
+        /**
+         * Cursors only move forward, allowing the driver to stream the result.
+         */
+        FORWARD_ONLY,
+
+        /**
+         * Cursors can seek in any direction.
+         */
+        SCROLLABLE
+
+    }
+
+    /**
+     * Whether the result of a query can be updated through its cursors.
+     */
+    public enum Concurrency {
+
+        READ_ONLY,
+
+        UPDATABLE
+
+    }
+
+    /**
+     * Options applied to statements of a query when they are prepared.
+     *
+     * @see QueryBuilder#fetchSize(int)
+     * @see QueryBuilder#maxRows(int)
+     * @see QueryBuilder#resultType(ResultType)
+     * @see QueryBuilder#concurrency(Concurrency)
+     * @see QueryBuilder#timeout(long, TimeUnit)
+     * @see QueryBuilder#readOnly(boolean)
+     */
+    public static final class Options {
+
+        /**
+         * The options of queries which were not given any, using the driver's defaults for everything.
+         */
+        public static final Options DEFAULT = new Options(0, 0, ResultType.FORWARD_ONLY, Concurrency.READ_ONLY, 0,
+                false);
+
+        private final int fetchSize;
+        private final int maxRows;
+        private final ResultType resultType;
+        private final Concurrency concurrency;
+        private final long timeoutNanos;
+        private final boolean readOnly;
+
+        private Options(int fetchSize, int maxRows, ResultType resultType, Concurrency concurrency,
+                        long timeoutNanos, boolean readOnly) {
+            this.fetchSize = fetchSize;
+            this.maxRows = maxRows;
+            this.resultType = resultType;
+            this.concurrency = concurrency;
+            this.timeoutNanos = timeoutNanos;
+            this.readOnly = readOnly;
+        }
+
+        /**
+         * @return The number of rows to fetch at a time, or zero for the driver's default.
+         */
+        public int fetchSize() {
+            return fetchSize;
+        }
+
+        /**
+         * @return The maximum number of rows returned, or zero for no limit.
+         */
+        public int maxRows() {
+            return maxRows;
+        }
+
+        public ResultType resultType() {
+            return resultType;
+        }
+
+        /**
+         * @return The timeout of statements in nanoseconds, or zero for no timeout.
+         */
+        public long timeoutNanos() {
+            return timeoutNanos;
+        }
+
+        public Concurrency concurrency() {
+            return concurrency;
+        }
+
+        /**
+         * @return True if the query is declared to never modify data.
+         */
+        public boolean readOnly() {
+            return readOnly;
+        }
+
+        /**
+         * @return True if the result type and concurrency are the defaults, which every driver supports.
+         */
+        public boolean hasDefaultResultSet() {
+            return resultType == ResultType.FORWARD_ONLY && concurrency == Concurrency.READ_ONLY;
+        }
+
+    }
+
+    /**
+     * A parameter of a query, with its name in canonical form.
+     */
+    public static final class Parameter {
+
+        private final String name;
+        private final int index;
+        private final Class<?> type;
+        private final int[] indices;
+        private final Parameter[] elements;
+        private final boolean dynamicList;
+
+        private Parameter(String name, int index, Class<?> type, int[] indices, Parameter[] elements,
+                          boolean dynamicList) {
+            this.name = name;
+            this.index = index;
+            this.type = type;
+            this.indices = indices;
+            this.elements = elements;
+            this.dynamicList = dynamicList;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        /**
+         * @return The index of the parameter among the parameters of its query, from zero up to
+         * {@link Query#parameterCount()}.
+         */
+        public int index() {
+            return index;
+        }
+
+        public Class<?> type() {
+            return type;
+        }
+
+        /**
+         * @return The indices of the parameter in the parsed SQL, or null if it does not appear in the SQL.
+         */
+        public int[] indices() {
+            return indices;
+        }
+
+        /**
+         * @return The parameters of the elements of a list parameter, or null if this is not a list parameter.
+         */
+        public Parameter[] elements() {
+            return elements;
+        }
+
+        /**
+         * @return True if this is a list parameter which can be bound to lists of any size, in which case its type is
+         * the type of the elements.
+         * @see QueryBuilder#listParameter(String, Class)
+         */
+        public boolean isDynamicList() {
+            return dynamicList;
+        }
+
+    }
+
+    /**
+     * A column of a query, with its name in canonical form.
+     */
+    public static final class Column {
+
+        private final String name;
+        private final Class<?> type;
+
+        private Column(String name, Class<?> type) {
+            this.name = name;
+            this.type = type;
+        }
+
+        public String name() {
+            return name;
+        }
+
+        public Class<?> type() {
+            return type;
+        }
+
+    }
+
     public static class ReadonlyStatementBuilder {
 
+        protected final Query query;
         protected final ReadonlyStatement statement;
 
-        private ReadonlyStatementBuilder(ReadonlyStatement statement) {
+        private ReadonlyStatementBuilder(Query query, ReadonlyStatement statement) {
+            this.query = query;
             this.statement = statement;
         }
 
@@ -269,12 +729,34 @@ public final class Query {
             return new ClosingCursor(statement, statement.query());
         }
 
+        /**
+         * Run the query and read its result into memory, closing the statement before returning.
+         *
+         * @return The cursor over the result, supporting random access.
+         * @see MaterializedCursor
+         */
+        public MaterializedCursor materialize() {
+            return MaterializedCursor.materialize(query(), query.columns());
+        }
+
+        /**
+         * Run the query and read its result into memory up to a limit, and into temporary files beyond it, closing the
+         * statement before returning.
+         *
+         * @param memoryLimit The approximate number of bytes of the result to hold in memory.
+         * @return The cursor over the result, supporting random access.
+         * @see MaterializedCursor
+         */
+        public MaterializedCursor materialize(long memoryLimit) {
+            return MaterializedCursor.materialize(query(), query.columns(), false, memoryLimit, null);
+        }
+
     }
 
     public static class StatementBuilder extends ReadonlyStatementBuilder {
 
-        private StatementBuilder(Statement statement) {
-            super(statement);
+        private StatementBuilder(Query query, Statement statement) {
+            super(query, statement);
         }
 
         public <T> StatementBuilder bind(String name, T value) {
@@ -400,32 +882,26 @@ public final class Query {
 
                 // Add parameter to parameters indexes map and substitute it with a ? in the resulting query.
                 String parameter = parameterBuilder.toString();
-                Integer listParameterSize = listParameters.get(parameter);
+                Integer listParameterSize = listParameters.get(NameTable.canonical(parameter));
 
                 if (listParameterSize != null) {
+                    // Each element of a list parameter is bound separately as its own indexed parameter.
                     queryBuilder.append('(');
-                    List<Integer> indices = parameterIndexes.get(parameter);
-
-                    if (indices == null) {
-                        indices = new ArrayList<>();
-                        parameterIndexes.put(parameter, indices);
-                    }
 
-                    indices.add(parameterIndex);
-                    parameterIndex++;
-                    queryBuilder.append('?');
+                    for (int p = 0; p < listParameterSize; p++) {
+                        if (p > 0) queryBuilder.append(',');
 
-                    for (int p = 1; p < listParameterSize; p++) {
-                        queryBuilder.append(",?");
-                        indices = parameterIndexes.get(parameter);
+                        String element = parameterListIndexer(parameter, p);
+                        List<Integer> indices = parameterIndexes.get(element);
 
                         if (indices == null) {
                             indices = new ArrayList<>();
-                            parameterIndexes.put(parameter, indices);
+                            parameterIndexes.put(element, indices);
                         }
 
                         indices.add(parameterIndex);
                         parameterIndex++;
+                        queryBuilder.append('?');
                     }
 
                     queryBuilder.append(')');
@@ -452,6 +928,107 @@ public final class Query {
         return queryBuilder.toString();
     }
 
+    /**
+     * @param type A type.
+     * @return The boxed class of a primitive type, otherwise the type itself.
+     */
+    public static Class<?> boxedType(Class<?> type) {
+        if (!type.isPrimitive()) return type;
+        if (type == Boolean.TYPE) return Boolean.class;
+        if (type == Byte.TYPE) return Byte.class;
+        if (type == Short.TYPE) return Short.class;
+        if (type == Integer.TYPE) return Integer.class;
+        if (type == Long.TYPE) return Long.class;
+        if (type == Float.TYPE) return Float.class;
+        if (type == Double.TYPE) return Double.class;
+        if (type == Character.TYPE) return Character.class;
+
+        return type;
+    }
+
+    /**
+     * Normalize SQL for {@link #fingerprint()}.
+     */
+    private static String normalizeSql(String sql) {
+        StringBuilder builder = new StringBuilder(sql.length());
+        boolean whitespace = false;
+
+        for (int i = 0, l = sql.length(); i < l; ) {
+            char c = sql.charAt(i);
+
+            // Skip comments and whitespace, collapsing them into a single space.
+            if (Character.isWhitespace(c)) {
+                whitespace = true;
+                i++;
+                continue;
+            } else if (sql.startsWith("--", i)) {
+                int end = sql.indexOf('\n', i);
+                i = end < 0 ? l : end;
+                whitespace = true;
+                continue;
+            } else if (sql.startsWith("/*", i)) {
+                int end = sql.indexOf("*/", i + 2);
+                i = end < 0 ? l : end + 2;
+                whitespace = true;
+                continue;
+            }
+
+            if (whitespace) {
+                // Only keep whitespace which separates words.
+                char previous = builder.length() > 0 ? builder.charAt(builder.length() - 1) : ' ';
+                if (isWordPart(previous) && isWordPart(c)) builder.append(' ');
+                whitespace = false;
+            }
+
+            if (c == '\'') {
+                // String literal, where quotes are escaped by doubling them.
+                i++;
+
+                while (i < l) {
+                    if (sql.charAt(i) == '\'') {
+                        if (i + 1 < l && sql.charAt(i + 1) == '\'') {
+                            i += 2;
+                            continue;
+                        }
+
+                        i++;
+                        break;
+                    }
+
+                    i++;
+                }
+
+                builder.append('?');
+            } else if (c == '"' || c == '`' || c == '[') {
+                // Quoted identifier, kept as is.
+                char end = c == '[' ? ']' : c;
+                int endIndex = sql.indexOf(end, i + 1);
+                endIndex = endIndex < 0 ? l : endIndex + 1;
+                builder.append(sql, i, endIndex);
+                i = endIndex;
+            } else if (Character.isDigit(c)) {
+                // Numeric literal.
+                while (i < l && (Character.isLetterOrDigit(sql.charAt(i)) || sql.charAt(i) == '.')) i++;
+                builder.append('?');
+            } else if (Character.isJavaIdentifierStart(c)) {
+                // Keyword or unquoted identifier.
+                while (i < l && Character.isJavaIdentifierPart(sql.charAt(i))) {
+                    builder.append(Character.toLowerCase(sql.charAt(i)));
+                    i++;
+                }
+            } else {
+                builder.append(c);
+                i++;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static boolean isWordPart(char c) {
+        return c == '?' || c == '\'' || Character.isJavaIdentifierPart(c);
+    }
+
     private static final class EscapedRange {
         final String start;
         final String end;
@@ -0,0 +1,16 @@
+package com.devexed.dalwit;
+
+/**
+ * Thrown when a statement, or the iteration of a cursor over its result, is aborted by {@link ReadonlyStatement#cancel()}.
+ */
+public final class QueryCancelledException extends DatabaseException {
+
+    public QueryCancelledException(String s) {
+        super(s);
+    }
+
+    public QueryCancelledException(String s, Throwable e) {
+        super(s, e);
+    }
+
+}
@@ -0,0 +1,19 @@
+package com.devexed.dalwit;
+
+/**
+ * Thrown when a statement is aborted because it ran past the timeout of its query or the deadline of its transaction.
+ *
+ * @see Query.QueryBuilder#timeout(long, java.util.concurrent.TimeUnit)
+ * @see ReadonlyDatabase#transact(long, java.util.concurrent.TimeUnit)
+ */
+public final class QueryTimeoutException extends DatabaseException {
+
+    public QueryTimeoutException(String s) {
+        super(s);
+    }
+
+    public QueryTimeoutException(String s, Throwable e) {
+        super(s, e);
+    }
+
+}
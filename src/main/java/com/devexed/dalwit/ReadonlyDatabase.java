@@ -1,5 +1,7 @@
 package com.devexed.dalwit;
 
+import java.util.concurrent.TimeUnit;
+
 public interface ReadonlyDatabase extends Closeable {
 
     /**
@@ -19,4 +21,18 @@ public interface ReadonlyDatabase extends Closeable {
      */
     ReadonlyTransaction transact();
 
+    /**
+     * Start a transaction to read transactionally from the database with a deadline. Statements run within the
+     * transaction, including its child transactions, are aborted with a {@link QueryTimeoutException} once the
+     * deadline has passed.
+     *
+     * @param timeout The time from now until the deadline.
+     * @param unit    The unit of the timeout.
+     * @return The transaction within which to read from the database.
+     * @throws DatabaseException If the transaction could not be started, or the database does not support deadlines.
+     */
+    default ReadonlyTransaction transact(long timeout, TimeUnit unit) {
+        throw new DatabaseException("Transaction deadlines are not supported by " + getClass().getName());
+    }
+
 }
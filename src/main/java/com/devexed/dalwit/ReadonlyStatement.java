@@ -14,6 +14,18 @@ public interface ReadonlyStatement extends Closeable {
 
     <T> Binder<T> binder(String parameter);
 
+    /**
+     * Cancel the execution of this statement and the iteration of the cursor over its result. Safe to call from any
+     * thread, typically while another thread is blocked in {@link #query()} or {@link Cursor#next()}, which then throw a
+     * {@link QueryCancelledException}. Has no effect if the statement is not executing.
+     *
+     * @throws DatabaseException If the database failed to cancel the statement, or the statement does not support
+     *                           cancellation.
+     */
+    default void cancel() {
+        throw new DatabaseException("Cancellation is not supported by " + getClass().getName());
+    }
+
     default <T> void bind(String parameter, T value) {
         this.<T>binder(parameter).bind(value);
     }
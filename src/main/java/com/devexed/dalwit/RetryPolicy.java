@@ -0,0 +1,196 @@
+package com.devexed.dalwit;
+
+import java.sql.SQLException;
+import java.sql.SQLTransientException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Predicate;
+
+/**
+ * <p>Policy for running work in a transaction which is retried when it fails for a transient reason, such as the
+ * database being busy or locked by another connection, or the transaction being chosen as the victim of a deadlock or
+ * serialization failure. Retries are delayed with bounded exponential backoff with jitter.</p>
+ * <p>The policy records how many retries each call needed, which can be used to measure contention.</p>
+ *
+ * @see Database#transact(Transaction.Work)
+ */
+public final class RetryPolicy {
+
+    private static final RetryPolicy defaultPolicy = new RetryPolicy(5, 10, 1000, TimeUnit.MILLISECONDS);
+
+    /**
+     * @return The shared default policy, retrying up to 5 times starting with a 10 ms backoff up to at most 1 s.
+     */
+    public static RetryPolicy defaults() {
+        return defaultPolicy;
+    }
+
+    /**
+     * Classify a database exception as transient by inspecting the underlying JDBC exceptions. Recognizes
+     * {@link SQLTransientException}, the SQL state class 40 (transaction rollback), SQLite's SQLITE_BUSY and
+     * SQLITE_LOCKED, and H2's lock timeout, deadlock and concurrent update errors.
+     *
+     * @param exception The exception to classify.
+     * @return True if retrying the failed transaction may succeed.
+     */
+    public static boolean isTransient(DatabaseException exception) {
+        for (Throwable cause = exception.getCause(); cause != null; cause = cause.getCause()) {
+            if (!(cause instanceof SQLException)) continue;
+
+            for (SQLException e = (SQLException) cause; e != null; e = e.getNextException()) {
+                if (isTransient(e)) return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static boolean isTransient(SQLException e) {
+        if (e instanceof SQLTransientException) return true;
+
+        String state = e.getSQLState();
+
+        if (state != null && state.startsWith("40")) return true;
+
+        String driver = e.getClass().getName();
+        int code = e.getErrorCode();
+
+        if (driver.startsWith("org.sqlite.")) {
+            // SQLITE_BUSY and SQLITE_LOCKED, including their extended result codes.
+            int primaryCode = code & 0xff;
+            return primaryCode == 5 || primaryCode == 6;
+        }
+
+        if (driver.startsWith("org.h2.")) {
+            // LOCK_TIMEOUT_1, DEADLOCK_1 and CONCURRENT_UPDATE_1.
+            return code == 50200 || code == 40001 || code == 90131;
+        }
+
+        return false;
+    }
+
+    private final int maxRetries;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Predicate<DatabaseException> transientFailure;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+    private final AtomicLongArray retryCounts;
+
+    /**
+     * Create a retry policy classifying failures with {@link #isTransient(DatabaseException)}.
+     *
+     * @see #RetryPolicy(int, long, long, TimeUnit, Predicate)
+     */
+    public RetryPolicy(int maxRetries, long initialBackoff, long maxBackoff, TimeUnit unit) {
+        this(maxRetries, initialBackoff, maxBackoff, unit, RetryPolicy::isTransient);
+    }
+
+    /**
+     * Create a retry policy.
+     *
+     * @param maxRetries       The maximum number of times to retry the work after its first attempt.
+     * @param initialBackoff   The backoff before the first retry. Doubled for every following retry.
+     * @param maxBackoff       The maximum backoff between two attempts.
+     * @param unit             The unit of the backoffs.
+     * @param transientFailure Classifies failures which may succeed if retried.
+     */
+    public RetryPolicy(int maxRetries, long initialBackoff, long maxBackoff, TimeUnit unit,
+                       Predicate<DatabaseException> transientFailure) {
+        if (maxRetries < 0) throw new DatabaseException("Retry count must be zero or greater");
+
+        this.maxRetries = maxRetries;
+        this.initialBackoffNanos = unit.toNanos(initialBackoff);
+        this.maxBackoffNanos = unit.toNanos(maxBackoff);
+        this.transientFailure = transientFailure;
+        retryCounts = new AtomicLongArray(maxRetries + 1);
+    }
+
+    /**
+     * Run work in a root transaction of the database and commit it, retrying the work in a new transaction if it or
+     * the commit fails transiently.
+     *
+     * @param database The database on which to open the transaction.
+     * @param work     The work to run. Must be safe to run multiple times.
+     * @param <T>      The type of the result of the work.
+     * @return The result of the work.
+     * @throws DatabaseException If the work failed for a reason which is not transient, or still failed after the
+     *                           maximum number of retries.
+     */
+    public <T> T transact(Database database, Transaction.Work<T> work) {
+        calls.incrementAndGet();
+
+        for (int attempt = 0; ; attempt++) {
+            try (Transaction transaction = database.transact()) {
+                T result = work.run(transaction);
+                transaction.commit();
+                retryCounts.incrementAndGet(attempt);
+
+                return result;
+            } catch (DatabaseException e) {
+                if (!transientFailure.test(e)) throw e;
+
+                if (attempt >= maxRetries) {
+                    exhausted.incrementAndGet();
+                    throw e;
+                }
+            }
+
+            retries.incrementAndGet();
+            backoff(attempt);
+        }
+    }
+
+    private void backoff(int attempt) {
+        long backoff = Math.min(maxBackoffNanos, initialBackoffNanos);
+
+        for (int i = 0; i < attempt && backoff < maxBackoffNanos; i++) backoff = Math.min(maxBackoffNanos, backoff * 2);
+
+        // Sleep somewhere between half and all of the backoff to spread out competing retries.
+        long sleep = backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(sleep);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * @return The total number of calls to {@link #transact}.
+     */
+    public long calls() {
+        return calls.get();
+    }
+
+    /**
+     * @return The total number of retries over all calls.
+     */
+    public long retries() {
+        return retries.get();
+    }
+
+    /**
+     * @return The number of calls which still failed transiently after the maximum number of retries.
+     */
+    public long exhausted() {
+        return exhausted.get();
+    }
+
+    /**
+     * @return The number of successful calls by the number of retries they needed, indexed from zero retries up to the
+     * maximum number of retries.
+     */
+    public long[] retryCounts() {
+        long[] counts = new long[retryCounts.length()];
+
+        for (int i = 0; i < counts.length; i++) counts[i] = retryCounts.get(i);
+
+        return counts;
+    }
+
+}
@@ -0,0 +1,270 @@
+package com.devexed.dalwit;
+
+import com.devexed.dalwit.util.NameTable;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * <p>Columnar batch of rows filled by {@link Cursor#fetch(RowBatch)}. Each column has a vector holding the values of
+ * all rows of the batch: integral columns of up to 32 bits in an <code>int[]</code>, 64 bit integral columns in a
+ * <code>long[]</code>, floating point columns in a <code>double[]</code> and other columns in an
+ * <code>Object[]</code>. Nulls are tracked in a bitmap per column, with the vector holding zero for null rows.</p>
+ * <p>A batch is reused for every fetch, so consumers loop over the primitive vectors without boxing or allocating:</p>
+ * <pre><code>
+ * RowBatch batch = new RowBatch(1024, query.columns());
+ * int amount = batch.column("amount");
+ *
+ * while (cursor.fetch(batch) &gt; 0) {
+ *     long[] amounts = batch.longs(amount);
+ *     for (int i = 0; i &lt; batch.size(); i++) total += amounts[i];
+ * }
+ * </code></pre>
+ */
+public final class RowBatch {
+
+    /**
+     * The type of the vector holding the values of a column.
+     */
+    public enum VectorType {
+        INT,
+        LONG,
+        DOUBLE,
+        OBJECT
+    }
+
+    private final int capacity;
+    private final String[] names;
+    private final NameTable<Integer> columns;
+    private final VectorType[] types;
+    private final Object[] vectors;
+    private final long[][] nulls;
+    private int size = 0;
+
+    /**
+     * @param capacity The maximum number of rows of the batch.
+     * @param columns  The types of the columns of the batch by name, for example {@link Query#columns()}.
+     */
+    public RowBatch(int capacity, Map<String, Class<?>> columns) {
+        if (capacity <= 0) throw new DatabaseException("Batch capacity must be one or greater");
+
+        this.capacity = capacity;
+        names = new String[columns.size()];
+        this.columns = new NameTable<>(columns.size());
+        types = new VectorType[columns.size()];
+        vectors = new Object[columns.size()];
+        nulls = new long[columns.size()][(capacity + 63) >>> 6];
+        int i = 0;
+
+        for (Map.Entry<String, Class<?>> e : columns.entrySet()) {
+            VectorType type = vectorType(e.getValue());
+            names[i] = NameTable.canonical(e.getKey());
+            this.columns.put(names[i], i);
+            types[i] = type;
+
+            switch (type) {
+                case INT:
+                    vectors[i] = new int[capacity];
+                    break;
+                case LONG:
+                    vectors[i] = new long[capacity];
+                    break;
+                case DOUBLE:
+                    vectors[i] = new double[capacity];
+                    break;
+                default:
+                    vectors[i] = new Object[capacity];
+                    break;
+            }
+
+            i++;
+        }
+    }
+
+    private static VectorType vectorType(Class<?> type) {
+        if (type == Integer.TYPE || type == Integer.class || type == Short.TYPE || type == Short.class
+                || type == Byte.TYPE || type == Byte.class || type == Boolean.TYPE || type == Boolean.class) {
+            return VectorType.INT;
+        }
+
+        if (type == Long.TYPE || type == Long.class) return VectorType.LONG;
+        if (type == Double.TYPE || type == Double.class || type == Float.TYPE || type == Float.class) {
+            return VectorType.DOUBLE;
+        }
+
+        return VectorType.OBJECT;
+    }
+
+    /**
+     * @return The maximum number of rows of the batch.
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of rows filled by the last fetch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The number of columns of the batch.
+     */
+    public int columnCount() {
+        return names.length;
+    }
+
+    /**
+     * @param name The name of the column, in any case.
+     * @return The index of the column.
+     * @throws DatabaseException If the batch has no column of the name.
+     */
+    public int column(String name) {
+        Integer index = columns.get(name);
+        if (index == null) throw new DatabaseException("No column " + name + " in batch");
+
+        return index;
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The canonical name of the column.
+     */
+    public String name(int column) {
+        return names[column];
+    }
+
+    public VectorType type(int column) {
+        return types[column];
+    }
+
+    /**
+     * @param column The index of an {@link VectorType#INT} column.
+     * @return The vector of the values of the column. Booleans are stored as zero and one.
+     */
+    public int[] ints(int column) {
+        return (int[]) vectors[column];
+    }
+
+    /**
+     * @param column The index of a {@link VectorType#LONG} column.
+     * @return The vector of the values of the column.
+     */
+    public long[] longs(int column) {
+        return (long[]) vectors[column];
+    }
+
+    /**
+     * @param column The index of a {@link VectorType#DOUBLE} column.
+     * @return The vector of the values of the column.
+     */
+    public double[] doubles(int column) {
+        return (double[]) vectors[column];
+    }
+
+    /**
+     * @param column The index of an {@link VectorType#OBJECT} column.
+     * @return The vector of the values of the column.
+     */
+    public Object[] objects(int column) {
+        return (Object[]) vectors[column];
+    }
+
+    /**
+     * @param column The index of the column.
+     * @return The null bitmap of the column, with bit <code>row &amp; 63</code> of word <code>row &gt;&gt;&gt; 6</code>
+     * set if the value of the row is null.
+     */
+    public long[] nulls(int column) {
+        return nulls[column];
+    }
+
+    /**
+     * @param column The index of the column.
+     * @param row    The index of the row.
+     * @return True if the value of the column is null in the row.
+     */
+    public boolean isNull(int column, int row) {
+        return (nulls[column][row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Empty the batch before filling it.
+     */
+    public void clear() {
+        size = 0;
+
+        for (long[] bitmap : nulls) Arrays.fill(bitmap, 0);
+        for (int i = 0; i < vectors.length; i++) {
+            if (types[i] == VectorType.OBJECT) Arrays.fill((Object[]) vectors[i], null);
+        }
+    }
+
+    /**
+     * Set the number of rows filled.
+     *
+     * @param size The number of rows.
+     */
+    public void size(int size) {
+        if (size < 0 || size > capacity) throw new DatabaseException("Batch size must be between 0 and " + capacity);
+
+        this.size = size;
+    }
+
+    /**
+     * Mark the value of a column as null in a row.
+     *
+     * @param column The index of the column.
+     * @param row    The index of the row.
+     */
+    public void setNull(int column, int row) {
+        nulls[column][row >>> 6] |= 1L << row;
+
+        switch (types[column]) {
+            case INT:
+                ints(column)[row] = 0;
+                break;
+            case LONG:
+                longs(column)[row] = 0;
+                break;
+            case DOUBLE:
+                doubles(column)[row] = 0;
+                break;
+            default:
+                objects(column)[row] = null;
+                break;
+        }
+    }
+
+    /**
+     * Set the value of a column in a row, converting it to the type of the column's vector.
+     *
+     * @param column The index of the column.
+     * @param row    The index of the row.
+     * @param value  The value, or null.
+     */
+    public void set(int column, int row, Object value) {
+        if (value == null) {
+            setNull(column, row);
+            return;
+        }
+
+        switch (types[column]) {
+            case INT:
+                ints(column)[row] = value instanceof Boolean ? ((Boolean) value ? 1 : 0) : ((Number) value).intValue();
+                break;
+            case LONG:
+                longs(column)[row] = ((Number) value).longValue();
+                break;
+            case DOUBLE:
+                doubles(column)[row] = ((Number) value).doubleValue();
+                break;
+            default:
+                objects(column)[row] = value;
+                break;
+        }
+    }
+
+}
@@ -14,4 +14,22 @@ public interface Transaction extends Database, ReadonlyTransaction {
      */
     void commit();
 
+    /**
+     * A unit of work which is run within a transaction.
+     *
+     * @param <T> The type of the result of the work.
+     */
+    interface Work<T> {
+
+        /**
+         * Run the work.
+         *
+         * @param transaction The transaction within which to run the work.
+         * @return The result of the work.
+         * @throws DatabaseException If the work failed.
+         */
+        T run(Transaction transaction);
+
+    }
+
 }
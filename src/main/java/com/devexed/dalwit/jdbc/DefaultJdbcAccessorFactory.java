@@ -1,16 +1,22 @@
 package com.devexed.dalwit.jdbc;
 
+import com.devexed.dalwit.Accessor;
 import com.devexed.dalwit.AccessorFactory;
+import com.devexed.dalwit.DatabaseException;
 
 import java.io.InputStream;
+import java.lang.reflect.Array;
 import java.math.BigDecimal;
 import java.math.BigInteger;
 import java.nio.ByteBuffer;
 import java.sql.*;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Accessor factory which maps the default JDBC types to classes.
@@ -25,6 +31,8 @@ public final class DefaultJdbcAccessorFactory
      * <p>Includes accessors for all primitives and additionally supports {@link String}, {@link Date},
      * {@link BigDecimal}</p>
      * {@link InputStream} and byte[].
+     * <p>Arrays of the primitives, their boxed classes, {@link String} and {@link BigDecimal} are bound as a single SQL
+     * ARRAY, see {@link ArrayAccessor}.</p>
      */
     private static final Map<Class<?>, JdbcAccessor> accessors = new HashMap<Class<?>, JdbcAccessor>() {{
         put(Boolean.TYPE, new JdbcAccessor() {
@@ -310,11 +318,144 @@ public final class DefaultJdbcAccessorFactory
                 return new UUID(buffer.getLong(), buffer.getLong());
             }
         });
-    }};
+        putArray(Boolean.TYPE, "BOOLEAN");
+        putArray(Short.TYPE, "SMALLINT");
+        putArray(Integer.TYPE, "INTEGER");
+        putArray(Long.TYPE, "BIGINT");
+        putArray(Float.TYPE, "REAL");
+        putArray(Double.TYPE, "DOUBLE");
+        putArray(Boolean.class, "BOOLEAN");
+        putArray(Byte.class, "TINYINT");
+        putArray(Short.class, "SMALLINT");
+        putArray(Integer.class, "INTEGER");
+        putArray(Long.class, "BIGINT");
+        putArray(Float.class, "REAL");
+        putArray(Double.class, "DOUBLE");
+        putArray(String.class, "VARCHAR");
+        putArray(BigDecimal.class, "DECIMAL");
+    }
+
+        private void putArray(Class<?> componentType, String sqlTypeName) {
+            put(Array.newInstance(componentType, 0).getClass(), new ArrayAccessor(componentType, sqlTypeName));
+        }
+    };
 
     @Override
     public JdbcAccessor create(Class<?> type) {
         return accessors.get(type);
     }
 
+    /**
+     * @return True if the accessor is one of the accessors created by this factory, and so reads values with the
+     * getter of the result set matching its type.
+     */
+    static boolean isDefault(Accessor<?, ?, ?> accessor) {
+        return accessors.containsValue(accessor);
+    }
+
+    /**
+     * <p>Accessor binding a whole {@link Collection} or array as one SQL ARRAY, for example for
+     * <code>a = ANY(:ids)</code>. Unlike list parameters the statement has the same shape and needs one bind call
+     * regardless of the number of elements.</p>
+     * <p>The array is created with {@link java.sql.Connection#createArrayOf}. Drivers which do not implement it, such
+     * as H2 1.4, are passed the elements as an <code>Object[]</code> instead, which they bind as an array. Whether a
+     * driver implements it is remembered per connection class, so only the first bind on such a driver pays for the
+     * exception. Created arrays are freed by statements when the parameter is bound again or the statement is closed.
+     * Arrays are read into an array of the parameter type, converting numeric elements as needed.</p>
+     */
+    private static final class ArrayAccessor implements JdbcAccessor {
+
+        private static final Set<Class<?>> unsupportedConnections = ConcurrentHashMap.newKeySet();
+
+        private final Class<?> componentType;
+        private final String sqlTypeName;
+
+        private ArrayAccessor(Class<?> componentType, String sqlTypeName) {
+            this.componentType = componentType;
+            this.sqlTypeName = sqlTypeName;
+        }
+
+        @Override
+        public void set(PreparedStatement statement, int index, Object value) throws SQLException {
+            bind(statement, index, value);
+        }
+
+        @Override
+        public java.sql.Array bind(PreparedStatement statement, int index, Object value) throws SQLException {
+            if (value == null) {
+                statement.setNull(index + 1, Types.ARRAY);
+                return null;
+            }
+
+            Object[] elements;
+
+            if (value instanceof Collection) {
+                elements = ((Collection<?>) value).toArray();
+            } else if (value.getClass().isArray()) {
+                elements = new Object[Array.getLength(value)];
+                for (int i = 0; i < elements.length; i++) elements[i] = Array.get(value, i);
+            } else {
+                throw new DatabaseException("Expected collection or array for parameter of type " + sqlTypeName
+                        + " array, was " + value.getClass());
+            }
+
+            java.sql.Connection connection = statement.getConnection();
+            java.sql.Array array = unsupportedConnections.contains(connection.getClass())
+                    ? null
+                    : createArray(connection, elements);
+
+            if (array != null) statement.setArray(index + 1, array);
+            else statement.setObject(index + 1, elements);
+
+            return array;
+        }
+
+        private java.sql.Array createArray(java.sql.Connection connection, Object[] elements) throws SQLException {
+            try {
+                return connection.createArrayOf(sqlTypeName, elements);
+            } catch (SQLFeatureNotSupportedException e) {
+                unsupportedConnections.add(connection.getClass());
+                return null;
+            } catch (SQLException e) {
+                // Some drivers report unsupported features with a plain exception and the standard SQL state.
+                if (!"HYC00".equals(e.getSQLState())) throw e;
+
+                unsupportedConnections.add(connection.getClass());
+                return null;
+            }
+        }
+
+        @Override
+        public Object get(ResultSet resultSet, int index) throws SQLException {
+            java.sql.Array array = resultSet.getArray(index + 1);
+            if (array == null) return null;
+
+            try {
+                Object[] elements = (Object[]) array.getArray();
+                Object value = Array.newInstance(componentType, elements.length);
+
+                for (int i = 0; i < elements.length; i++) Array.set(value, i, convert(elements[i]));
+
+                return value;
+            } finally {
+                array.free();
+            }
+        }
+
+        private Object convert(Object element) {
+            if (!(element instanceof Number)) return element;
+
+            Number number = (Number) element;
+            if (componentType == Short.TYPE || componentType == Short.class) return number.shortValue();
+            if (componentType == Integer.TYPE || componentType == Integer.class) return number.intValue();
+            if (componentType == Long.TYPE || componentType == Long.class) return number.longValue();
+            if (componentType == Float.TYPE || componentType == Float.class) return number.floatValue();
+            if (componentType == Double.TYPE || componentType == Double.class) return number.doubleValue();
+            if (componentType == Byte.class) return number.byteValue();
+
+            return element;
+        }
+
+    }
+
 }
@@ -3,9 +3,9 @@ package com.devexed.dalwit.jdbc;
 import com.devexed.dalwit.Accessor;
 import com.devexed.dalwit.Cursor;
 import com.devexed.dalwit.DatabaseException;
+import com.devexed.dalwit.util.NameTable;
 
 import java.sql.*;
-import java.util.HashMap;
 import java.util.Map;
 
 /**
@@ -22,9 +22,9 @@ public final class DefaultJdbcGeneratedKeysSelector implements JdbcGeneratedKeys
     @Override
     public Cursor selectGeneratedKeys(JdbcAbstractDatabase database, PreparedStatement statement,
                                       Map<String, Class<?>> keyTypes) throws SQLException {
-        Map<String, Cursor.Getter<?>> columns = new HashMap<>();
         ResultSet resultSet = statement.getGeneratedKeys();
         ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+        NameTable<Cursor.Getter<?>> columns = new NameTable<>(resultSetMetaData.getColumnCount());
 
         for (int i = 0, l = resultSetMetaData.getColumnCount(); i < l; i++) {
             String column = database.columnNameMapper.apply(resultSetMetaData.getColumnName(i + 1)).toLowerCase();
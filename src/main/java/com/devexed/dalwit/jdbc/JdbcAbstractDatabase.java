@@ -6,6 +6,7 @@ import com.devexed.dalwit.util.AbstractCloseable;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 
 abstract class JdbcAbstractDatabase extends AbstractCloseable implements Database {
 
@@ -14,32 +15,81 @@ abstract class JdbcAbstractDatabase extends AbstractCloseable implements Databas
     final AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory;
     final JdbcGeneratedKeysSelector generatedKeysSelector;
     final ColumnNameMapper columnNameMapper;
+    final DatabaseListener listener;
+    final int depth;
+    final boolean verifyLifecycle;
 
     private JdbcTransaction child = null;
 
+    /**
+     * The {@link System#nanoTime()} by which statements on this database must finish, if {@link #hasDeadline}.
+     */
+    long deadline = 0;
+    boolean hasDeadline = false;
+
     JdbcAbstractDatabase(boolean readonly,
                          java.sql.Connection connection,
                          AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory,
                          JdbcGeneratedKeysSelector generatedKeysSelector,
-                         ColumnNameMapper columnNameMapper) {
+                         ColumnNameMapper columnNameMapper,
+                         DatabaseListener listener,
+                         int depth,
+                         boolean verifyLifecycle) {
         this.readonly = readonly;
         this.connection = connection;
         this.accessorFactory = accessorFactory;
         this.generatedKeysSelector = generatedKeysSelector;
         this.columnNameMapper = columnNameMapper;
+        this.listener = listener;
+        this.depth = depth;
+        this.verifyLifecycle = verifyLifecycle;
     }
 
+    /**
+     * The closed state is tracked locally so checking it makes no driver calls. When verifying the lifecycle, the
+     * driver is asked to confirm that the connection of an open database is open.
+     */
     @Override
     protected final boolean isClosed() {
-        try {
-            return super.isClosed() || connection.isClosed();
-        } catch (SQLException e) {
-            throw new DatabaseException(e);
+        boolean closed = super.isClosed();
+
+        if (verifyLifecycle && !closed) {
+            try {
+                if (connection.isClosed()) {
+                    throw new DatabaseException("JDBC connection was closed while its database was still open");
+                }
+            } catch (SQLException e) {
+                throw new DatabaseException(e);
+            }
         }
+
+        return closed;
     }
 
     abstract void closeResource();
 
+    /**
+     * Called before a statement prepared on this database writes to it.
+     */
+    void beginWrite() throws SQLException {
+    }
+
+    /**
+     * @return True if statements run directly on this database run in an implicit transaction, which must be ended
+     * with {@link #endImplicitTransaction} once the statement has been executed or the cursor of its query closed.
+     */
+    boolean hasImplicitTransaction() {
+        return false;
+    }
+
+    /**
+     * End the implicit transaction of a statement run directly on this database.
+     *
+     * @param commit True to commit the transaction, false to roll it back.
+     */
+    void endImplicitTransaction(boolean commit) throws SQLException {
+    }
+
     @Override
     public final void close() {
         if (child != null) child.close();
@@ -50,7 +100,7 @@ abstract class JdbcAbstractDatabase extends AbstractCloseable implements Databas
     /**
      * Check if this transaction has an open child transaction.
      */
-    private boolean hasChildTransaction() {
+    final boolean hasChildTransaction() {
         return child != null;
     }
 
@@ -83,10 +133,38 @@ abstract class JdbcAbstractDatabase extends AbstractCloseable implements Databas
         return child;
     }
 
+    @Override
+    public final Transaction transact(long timeout, TimeUnit unit) {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        JdbcTransaction transaction = (JdbcTransaction) transact();
+        transaction.limitDeadline(deadline);
+
+        return transaction;
+    }
+
+    /**
+     * Set the deadline of statements on this database, unless it already has an earlier deadline.
+     */
+    final void limitDeadline(long deadline) {
+        if (!hasDeadline || deadline - this.deadline < 0) {
+            this.deadline = deadline;
+            hasDeadline = true;
+        }
+    }
+
+    /**
+     * Create a statement of a query, binding lists of any size to its dynamic list parameters if it has any.
+     */
+    final Statement createStatement(Query query) {
+        if (query.dynamicListParameters().isEmpty()) return new JdbcStatement(this, query);
+
+        return new JdbcBucketedStatement(this, query);
+    }
+
     @Override
     public Statement prepare(Query query) {
         checkActive();
-        return new JdbcStatement(this, query);
+        return createStatement(query);
     }
 
     @Override
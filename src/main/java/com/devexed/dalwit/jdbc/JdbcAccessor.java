@@ -2,6 +2,7 @@ package com.devexed.dalwit.jdbc;
 
 import com.devexed.dalwit.Accessor;
 
+import java.sql.Array;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -9,4 +10,17 @@ import java.sql.SQLException;
 /**
  * Accessor to bind values to and retrieve values from JDBC interfaces.
  */
-interface JdbcAccessor extends Accessor<PreparedStatement, ResultSet, SQLException> {}
+interface JdbcAccessor extends Accessor<PreparedStatement, ResultSet, SQLException> {
+
+    /**
+     * Set a value on a statement like {@link #set}, returning any array created for it with
+     * {@link java.sql.Connection#createArrayOf}, which the caller frees once the value is no longer bound.
+     *
+     * @return The created array, or null if none was created.
+     */
+    default Array bind(PreparedStatement statement, int index, Object value) throws SQLException {
+        set(statement, index, value);
+        return null;
+    }
+
+}
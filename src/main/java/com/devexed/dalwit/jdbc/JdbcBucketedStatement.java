@@ -0,0 +1,204 @@
+package com.devexed.dalwit.jdbc;
+
+import com.devexed.dalwit.*;
+import com.devexed.dalwit.util.AbstractCloseable;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * Statement for a query with dynamic list parameters. Bound values are kept until the statement is executed, when
+ * each list is padded to its bucket size (see {@link Query#listBucketSize(int)}) and the values are bound to the
+ * prepared statement of that shape. Each shape is prepared once and reused for the lifetime of this statement.
+ */
+final class JdbcBucketedStatement extends AbstractCloseable implements Statement {
+
+    private static final Object unbound = new Object();
+
+    private final JdbcAbstractDatabase database;
+    private final Query query;
+    private final Binder<?>[] binders;
+    private final Object[] values;
+    private final HashMap<Query, JdbcStatement> statements = new HashMap<>();
+    private final HashMap<String, Integer> listSizes = new HashMap<>();
+    private volatile JdbcStatement current = null;
+
+    JdbcBucketedStatement(JdbcAbstractDatabase database, Query query) {
+        this.database = database;
+        this.query = query;
+        binders = new Binder<?>[query.parameterCount()];
+        values = new Object[query.parameterCount()];
+        Arrays.fill(values, unbound);
+    }
+
+    @Override
+    public Cursor query() {
+        return statement().query();
+    }
+
+    @Override
+    public long update() {
+        return statement().update();
+    }
+
+    @Override
+    public void execute() {
+        statement().execute();
+    }
+
+    @Override
+    public Cursor insert() {
+        return statement().insert();
+    }
+
+    /**
+     * Get the statement of the shape fitting the bound lists and bind all values to it.
+     */
+    private JdbcStatement statement() {
+        checkNotClosed();
+        database.checkActive();
+
+        for (String name : query.dynamicListParameters().keySet()) {
+            List<?> list = list(name);
+            listSizes.put(name, Query.listBucketSize(list.size()));
+        }
+
+        Query sizedQuery = query.withListSizes(listSizes);
+        JdbcStatement statement = statements.get(sizedQuery);
+
+        if (statement == null) {
+            statement = new JdbcStatement(database, sizedQuery);
+            statements.put(sizedQuery, statement);
+        }
+
+        current = statement;
+
+        bindAll(statement, query.parameters().keySet());
+        bindAll(statement, query.parameterListSizes().keySet());
+
+        for (String name : query.dynamicListParameters().keySet()) {
+            List<?> list = list(name);
+            int size = listSizes.get(name);
+
+            // Pad the list by repeating its last value, which leaves the result of IN, NOT IN and ANY unchanged.
+            for (int i = 0; i < size; i++) {
+                statement.bind(Query.parameterListIndexer(name, i), list.get(Math.min(i, list.size() - 1)));
+            }
+        }
+
+        return statement;
+    }
+
+    @Override
+    public void cancel() {
+        JdbcStatement statement = current;
+        if (statement != null) statement.cancel();
+    }
+
+    private void bindAll(JdbcStatement statement, Set<String> names) {
+        for (String name : names) {
+            Object value = values[query.parameter(name).index()];
+            if (value != unbound) statement.bind(name, value);
+        }
+    }
+
+    private List<?> list(String name) {
+        Object value = values[query.parameter(name).index()];
+
+        if (value == unbound) throw new DatabaseException("List parameter " + name + " is not bound");
+
+        return (List<?>) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Binder<T> binder(String parameter) {
+        checkNotClosed();
+        Query.Parameter symbol = query.parameter(parameter);
+
+        if (symbol == null) {
+            throw new DatabaseException("No type is defined for parameter " + parameter);
+        }
+
+        Binder<?> binder = binders[symbol.index()];
+
+        if (binder == null) {
+            if (database.accessorFactory.create(symbol.type()) == null) {
+                throw new DatabaseException("No accessor is defined for type " + symbol.type() + " (parameter "
+                        + symbol.name() + ")");
+            }
+
+            // Values are only bound once the statement is executed, so check their types right away instead.
+            int index = symbol.index();
+            binder = symbol.isDynamicList()
+                    ? (Binder<Object>) value -> values[index] = toList(symbol, value)
+                    : (Binder<Object>) value -> {
+                        checkType(symbol, value);
+                        values[index] = value;
+                    };
+            binders[index] = binder;
+        }
+
+        return (Binder<T>) binder;
+    }
+
+    private static List<?> toList(Query.Parameter parameter, Object value) {
+        List<?> list;
+
+        // Values are only sent when the statement executes, so copy collections the caller may change after binding.
+        if (value instanceof Collection) {
+            list = new ArrayList<>((Collection<?>) value);
+        } else if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            ArrayList<Object> elements = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) elements.add(Array.get(value, i));
+
+            list = elements;
+        } else {
+            throw new DatabaseException("Expected collection or array for list parameter " + parameter.name()
+                    + ", was " + (value != null ? value.getClass() : "null"));
+        }
+
+        if (list.isEmpty()) throw new DatabaseException("List parameter " + parameter.name() + " must not be empty");
+        for (Object element : list) checkType(parameter, element);
+
+        return list;
+    }
+
+    /**
+     * Check that a value can be bound to a parameter: an instance of its type, a collection for an array type, or null
+     * for a non-primitive type.
+     */
+    private static void checkType(Query.Parameter parameter, Object value) {
+        Class<?> type = parameter.type();
+
+        if (value == null) {
+            if (!type.isPrimitive()) return;
+        } else if (Query.boxedType(type).isInstance(value) || (type.isArray() && value instanceof Collection)) {
+            return;
+        }
+
+        throw new DatabaseException("Expected value of " + type + " for parameter " + parameter.name() + ", was "
+                + (value != null ? value.getClass() : "null"));
+    }
+
+    @Override
+    public void close() {
+        DatabaseException exception = null;
+
+        for (JdbcStatement statement : statements.values()) {
+            try {
+                statement.close();
+            } catch (DatabaseException e) {
+                if (exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+
+        statements.clear();
+        super.close();
+
+        if (exception != null) throw exception;
+    }
+
+}
@@ -14,12 +14,45 @@ import java.util.function.Function;
  */
 public final class JdbcConnection implements Connection {
 
+    /**
+     * Start building a JDBC connection with the default accessor factory, generated key selector and column name
+     * mapper.
+     *
+     * @param driverClass The JDBC driver class.
+     * @param url         The JDBC connection url.
+     * @return A connection builder.
+     */
+    public static Builder builder(String driverClass, String url) {
+        return new Builder(driverClass, url);
+    }
+
     private final String driverClass;
     private final String url;
     private final Properties properties;
     private final AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory;
     private final JdbcGeneratedKeysSelector generatedKeysSelector;
     private final ColumnNameMapper columnNameMapper;
+    private final boolean manualCommit;
+    private final DatabaseListener listener;
+    private final boolean verifyLifecycle;
+
+    private JdbcConnection(String driverClass, String url, Properties properties,
+                           AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory,
+                           JdbcGeneratedKeysSelector generatedKeysSelector,
+                           ColumnNameMapper columnNameMapper,
+                           boolean manualCommit,
+                           DatabaseListener listener,
+                           boolean verifyLifecycle) {
+        this.driverClass = driverClass;
+        this.url = url;
+        this.properties = properties;
+        this.accessorFactory = accessorFactory;
+        this.generatedKeysSelector = generatedKeysSelector;
+        this.columnNameMapper = columnNameMapper;
+        this.manualCommit = manualCommit;
+        this.listener = listener;
+        this.verifyLifecycle = verifyLifecycle;
+    }
 
     /**
      * Creates a connection object which can open databases for reading or writing using a JDBC driver.
@@ -35,12 +68,7 @@ public final class JdbcConnection implements Connection {
                           AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory,
                           JdbcGeneratedKeysSelector generatedKeysSelector,
                           ColumnNameMapper columnNameMapper) {
-        this.driverClass = driverClass;
-        this.url = url;
-        this.properties = properties;
-        this.accessorFactory = accessorFactory;
-        this.generatedKeysSelector = generatedKeysSelector;
-        this.columnNameMapper = columnNameMapper;
+        this(driverClass, url, properties, accessorFactory, generatedKeysSelector, columnNameMapper, false, DatabaseListener.NONE, false);
     }
 
     /**
@@ -64,16 +92,31 @@ public final class JdbcConnection implements Connection {
             throw new DatabaseException(e);
         }
 
-        java.sql.Connection connection;
+        java.sql.Connection connection = null;
+        DatabaseListener.Probe probe = listener.connection();
+        probe.begin(DatabaseListener.Operation.CONNECT);
 
         try {
             connection = DriverManager.getConnection(url, properties);
             connection.setReadOnly(readonly);
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            if (connection != null) {
+                try {
+                    connection.close();
+                } catch (SQLException closeException) {
+                    e.addSuppressed(closeException);
+                }
+            }
+
+            DatabaseException exception = new DatabaseException(e);
+            probe.fail(DatabaseListener.Operation.CONNECT, exception);
+            throw exception;
         }
 
-        return new JdbcDatabase(readonly, connection, accessorFactory, generatedKeysSelector, columnNameMapper);
+        probe.end(DatabaseListener.Operation.CONNECT, 0);
+
+        return new JdbcDatabase(readonly, connection, accessorFactory, generatedKeysSelector, columnNameMapper,
+                manualCommit, listener, verifyLifecycle);
     }
 
     /**
@@ -96,4 +139,96 @@ public final class JdbcConnection implements Connection {
         return open(true);
     }
 
+    public static final class Builder {
+
+        private final String driverClass;
+        private final String url;
+        private Properties properties = new Properties();
+        private AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory = new DefaultJdbcAccessorFactory();
+        private JdbcGeneratedKeysSelector generatedKeysSelector = new DefaultJdbcGeneratedKeysSelector();
+        private ColumnNameMapper columnNameMapper = new DefaultColumnNameMapper();
+        private boolean manualCommit = false;
+        private DatabaseListener listener = DatabaseListener.NONE;
+        private boolean verifyLifecycle = false;
+
+        private Builder(String driverClass, String url) {
+            this.driverClass = driverClass;
+            this.url = url;
+        }
+
+        /**
+         * @param properties The JDBC connection properties.
+         */
+        public Builder properties(Properties properties) {
+            this.properties = properties;
+            return this;
+        }
+
+        /**
+         * @param accessorFactory The accessor factory creating accessors.
+         */
+        public Builder accessorFactory(AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory) {
+            this.accessorFactory = accessorFactory;
+            return this;
+        }
+
+        /**
+         * @param generatedKeysSelector The selector of generated keys after inserts.
+         */
+        public Builder generatedKeysSelector(JdbcGeneratedKeysSelector generatedKeysSelector) {
+            this.generatedKeysSelector = generatedKeysSelector;
+            return this;
+        }
+
+        /**
+         * @param columnNameMapper The mapper of result set column names.
+         */
+        public Builder columnNameMapper(ColumnNameMapper columnNameMapper) {
+            this.columnNameMapper = columnNameMapper;
+            return this;
+        }
+
+        /**
+         * <p>Keep opened JDBC connections in manual commit mode for their entire lifetime, instead of switching auto
+         * commit off and on around every root transaction. Some drivers implement the switch as a round trip or an
+         * implicit commit.</p>
+         * <p>Statements run outside of a transaction are committed by the database itself, right after they are
+         * executed or, for queries and inserts, once their cursor is
+         * closed.</p>
+         *
+         * @param manualCommit True to keep connections in manual commit mode.
+         */
+        public Builder manualCommit(boolean manualCommit) {
+            this.manualCommit = manualCommit;
+            return this;
+        }
+
+        /**
+         * @param listener The listener of the operations on the opened databases. Combine multiple listeners with
+         *                 {@link DatabaseListener#of(DatabaseListener...)}.
+         */
+        public Builder listener(DatabaseListener listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        /**
+         * <p>Debug mode which cross-checks the open state tracked by databases and statements against the driver on
+         * every operation, failing when a JDBC connection or statement was closed behind the database's back.</p>
+         * <p>Off by default, in which case checking whether a database or statement is open makes no driver calls.</p>
+         *
+         * @param verifyLifecycle True to verify the lifecycle of databases and statements against the driver.
+         */
+        public Builder verifyLifecycle(boolean verifyLifecycle) {
+            this.verifyLifecycle = verifyLifecycle;
+            return this;
+        }
+
+        public JdbcConnection build() {
+            return new JdbcConnection(driverClass, url, properties, accessorFactory, generatedKeysSelector,
+                    columnNameMapper, manualCommit, listener, verifyLifecycle);
+        }
+
+    }
+
 }
@@ -9,11 +9,54 @@ import java.sql.SQLException;
 
 public final class JdbcDatabase extends JdbcAbstractDatabase {
 
+    final boolean manualCommit;
+
     public JdbcDatabase(boolean readonly, Connection connection,
                         AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory,
                         JdbcGeneratedKeysSelector generatedKeysSelector,
                         ColumnNameMapper columnNameMapper) {
-        super(readonly, connection, accessorFactory, generatedKeysSelector, columnNameMapper);
+        this(readonly, connection, accessorFactory, generatedKeysSelector, columnNameMapper, false, DatabaseListener.NONE,
+                false);
+    }
+
+    /**
+     * Open a database with the options of a {@link JdbcConnection.Builder}.
+     *
+     * @param manualCommit    Keep the connection in manual commit mode for the lifetime of the database, committing
+     *                        statements run outside of a transaction as they end.
+     * @param listener        The listener of the operations on the database.
+     * @param verifyLifecycle Cross-check the locally tracked open state of the database and its statements against the
+     *                        driver on every operation.
+     * @see JdbcConnection.Builder#manualCommit(boolean)
+     * @see JdbcConnection.Builder#listener(DatabaseListener)
+     * @see JdbcConnection.Builder#verifyLifecycle(boolean)
+     */
+    JdbcDatabase(boolean readonly, Connection connection,
+                 AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory,
+                 JdbcGeneratedKeysSelector generatedKeysSelector,
+                 ColumnNameMapper columnNameMapper,
+                 boolean manualCommit,
+                 DatabaseListener listener,
+                 boolean verifyLifecycle) {
+        super(readonly, connection, accessorFactory, generatedKeysSelector, columnNameMapper, listener, 0,
+                verifyLifecycle);
+        this.manualCommit = manualCommit;
+
+        if (manualCommit) {
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                // The caller never receives this database to close, so close the connection it was given here.
+                try {
+                    connection.close();
+                } catch (SQLException closeException) {
+                    e.addSuppressed(closeException);
+                }
+
+                discardTracker();
+                throw new DatabaseException(e);
+            }
+        }
     }
 
     @Override
@@ -27,7 +70,18 @@ public final class JdbcDatabase extends JdbcAbstractDatabase {
     @Override
     public Statement prepare(Query query) {
         checkActive();
-        return new JdbcStatement(this, query);
+        return createStatement(query);
+    }
+
+    @Override
+    boolean hasImplicitTransaction() {
+        return manualCommit && !hasChildTransaction();
+    }
+
+    @Override
+    void endImplicitTransaction(boolean commit) throws SQLException {
+        if (commit) connection.commit();
+        else connection.rollback();
     }
 
     @Override
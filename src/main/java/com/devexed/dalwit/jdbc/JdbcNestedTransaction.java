@@ -1,39 +1,46 @@
 package com.devexed.dalwit.jdbc;
 
-import com.devexed.dalwit.DatabaseException;
-
 import java.sql.SQLException;
 import java.sql.Savepoint;
 
 /**
- * A JDBC transaction within a parent transaction. Implements transaction nesting using JDBC savepoints.
+ * A JDBC transaction within a parent transaction. Implements transaction nesting using JDBC savepoints. The savepoint
+ * is only set once the transaction, or one of its children, first writes to the database. Transactions which only
+ * read, or do nothing at all, never touch savepoints. Only queries declared read only with
+ * {@link com.devexed.dalwit.Query.QueryBuilder#readOnly(boolean)} are considered reads, since other queries may
+ * modify data.
  */
 final class JdbcNestedTransaction extends JdbcTransaction {
 
-    private final Savepoint savepoint;
+    private final JdbcTransaction parent;
+    private Savepoint savepoint = null;
 
     /**
-     * Create a root level transaction. Committing this transaction will only
+     * Create a nested transaction. Committing this transaction will only
      * update the database if the parent chain of transactions are committed.
      */
     JdbcNestedTransaction(JdbcTransaction parent) {
         super(parent);
+        this.parent = parent;
+    }
+
+    @Override
+    void beginWrite() throws SQLException {
+        if (savepoint != null) return;
 
-        try {
-            this.savepoint = parent.connection.setSavepoint();
-        } catch (SQLException e) {
-            throw new DatabaseException(e);
-        }
+        // Parent savepoints must precede this one so rolling back a parent also undoes the writes of this transaction.
+        parent.beginWrite();
+        savepoint = connection.setSavepoint();
     }
 
     @Override
     void commitTransaction() throws SQLException {
-        connection.releaseSavepoint(savepoint);
+        if (savepoint != null) connection.releaseSavepoint(savepoint);
     }
 
     @Override
     void rollbackTransaction() throws SQLException {
-        connection.rollback(savepoint);
+        if (savepoint != null) connection.rollback(savepoint);
     }
 
 }
@@ -0,0 +1,115 @@
+package com.devexed.dalwit.jdbc;
+
+import com.devexed.dalwit.*;
+import com.devexed.dalwit.util.SlowQueryLog;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * <p>Captures query plans for the {@link SlowQueryLog} by running the query prefixed with an explain statement on a
+ * separate read only database. The database is opened when the first plan is captured and kept open until the
+ * explainer is closed.</p>
+ * <p>For example, for SQLite one would use <code>JdbcQueryPlanExplainer.sqlite(connection)</code> which explains
+ * queries with <code>EXPLAIN QUERY PLAN</code>.</p>
+ */
+public final class JdbcQueryPlanExplainer implements SlowQueryLog.Explainer, Closeable {
+
+    /**
+     * @param connection The connection to open the read only database with. The SQLite driver only allows opening
+     *                   connections read only, so it must be built with the <code>open_mode</code> property set to 1.
+     * @return An explainer using SQLite's <code>EXPLAIN QUERY PLAN</code>.
+     */
+    public static JdbcQueryPlanExplainer sqlite(JdbcConnection connection) {
+        return new JdbcQueryPlanExplainer(connection, "EXPLAIN QUERY PLAN ");
+    }
+
+    /**
+     * @param connection The connection to open the read only database with.
+     * @return An explainer using H2's <code>EXPLAIN</code>.
+     */
+    public static JdbcQueryPlanExplainer h2(JdbcConnection connection) {
+        return new JdbcQueryPlanExplainer(connection, "EXPLAIN ");
+    }
+
+    private final JdbcConnection connection;
+    private final String explainPrefix;
+    private JdbcAbstractDatabase database = null;
+
+    /**
+     * @param connection    The connection to open the read only database with.
+     * @param explainPrefix The SQL prefixed to queries to explain them.
+     */
+    public JdbcQueryPlanExplainer(JdbcConnection connection, String explainPrefix) {
+        this.connection = connection;
+        this.explainPrefix = explainPrefix;
+    }
+
+    @Override
+    public synchronized String explain(Query query, Map<String, Object> parameters) {
+        if (database == null) database = (JdbcAbstractDatabase) connection.read();
+
+        ArrayList<java.sql.Array> arrays = new ArrayList<>();
+
+        // Prepare on the JDBC connection directly so the explain statement itself is not reported to any listener.
+        try (PreparedStatement statement = database.connection.prepareStatement(explainPrefix + query.sql())) {
+            for (Map.Entry<String, int[]> e : query.parameterIndices().entrySet()) {
+                Object value = parameters.get(e.getKey());
+                Class<?> type = query.parameters().get(e.getKey());
+                Accessor<PreparedStatement, ResultSet, SQLException> accessor =
+                        type != null ? database.accessorFactory.create(type) : null;
+
+                for (int index : e.getValue()) {
+                    if (accessor instanceof JdbcAccessor && value != null) {
+                        java.sql.Array array = ((JdbcAccessor) accessor).bind(statement, index, value);
+                        if (array != null) arrays.add(array);
+                    } else if (accessor != null && value != null) {
+                        accessor.set(statement, index, value);
+                    } else {
+                        statement.setObject(index + 1, value);
+                    }
+                }
+            }
+
+            StringBuilder plan = new StringBuilder();
+
+            try (ResultSet resultSet = statement.executeQuery()) {
+                ResultSetMetaData metaData = resultSet.getMetaData();
+
+                while (resultSet.next()) {
+                    for (int i = 1, l = metaData.getColumnCount(); i <= l; i++) {
+                        if (i > 1) plan.append(" | ");
+                        plan.append(resultSet.getString(i));
+                    }
+
+                    plan.append('\n');
+                }
+            }
+
+            return plan.toString();
+        } catch (SQLException e) {
+            throw new DatabaseException(e);
+        } finally {
+            for (java.sql.Array array : arrays) {
+                try {
+                    array.free();
+                } catch (SQLException e) {
+                    // The plan has been captured, or capturing it has already failed.
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (database != null) {
+            database.close();
+            database = null;
+        }
+    }
+
+}
@@ -6,18 +6,24 @@ import java.sql.SQLException;
 
 final class JdbcRootTransaction extends JdbcTransaction {
 
+    private final boolean toggleAutoCommit;
+
     /**
      * Create a root level transaction. Committing this transaction will
      * update the database.
      */
-    JdbcRootTransaction(JdbcAbstractDatabase parent) {
+    JdbcRootTransaction(JdbcDatabase parent) {
         super(parent);
-
-        // Disable auto commit while starting a root transaction.
-        try {
-            connection.setAutoCommit(false);
-        } catch (SQLException e) {
-            throw new DatabaseException(e);
+        toggleAutoCommit = !parent.manualCommit;
+
+        // Disable auto commit while starting a root transaction, unless the connection is always in manual commit mode.
+        if (toggleAutoCommit) {
+            try {
+                connection.setAutoCommit(false);
+            } catch (SQLException e) {
+                discardTracker();
+                throw new DatabaseException(e);
+            }
         }
     }
 
@@ -25,14 +31,25 @@ final class JdbcRootTransaction extends JdbcTransaction {
     void closeResource() {
         super.closeResource();
 
-        // Disable auto commit when leaving root transaction.
-        try {
-            connection.setAutoCommit(true);
-        } catch (SQLException e) {
-            throw new DatabaseException(e);
+        // Enable auto commit when leaving root transaction.
+        if (toggleAutoCommit) {
+            try {
+                connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                throw new DatabaseException(e);
+            }
         }
     }
 
+    /**
+     * Connections kept in manual commit mode have no auto commit switch to end the transaction, so even a read only
+     * root transaction must be rolled back to release its locks and snapshot.
+     */
+    @Override
+    boolean rollbackOnClose() {
+        return super.rollbackOnClose() || !toggleAutoCommit;
+    }
+
     @Override
     void commitTransaction() throws SQLException {
         connection.commit();
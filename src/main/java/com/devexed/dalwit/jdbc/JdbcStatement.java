@@ -1,51 +1,90 @@
 package com.devexed.dalwit.jdbc;
 
 import com.devexed.dalwit.*;
+import com.devexed.dalwit.DatabaseListener.Operation;
 import com.devexed.dalwit.util.AbstractCloseable;
+import com.devexed.dalwit.util.ClosingCursor;
+import com.devexed.dalwit.util.NameTable;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 final class JdbcStatement extends AbstractCloseable implements Statement {
 
     private final Query query;
     private final JdbcAbstractDatabase database;
     private final PreparedStatement statement;
+    private final DatabaseListener.Probe probe;
+    private final Binder<?>[] binders;
+    private final Object executionLock = new Object();
+    private boolean executing = false;
+    private volatile boolean cancelled = false;
+    private volatile boolean timedOut = false;
+    private ScheduledFuture<?> watchdog = null;
 
     JdbcStatement(JdbcAbstractDatabase database, Query query) {
         this.database = database;
         this.query = query;
+        binders = new Binder<?>[query.parameterCount()];
         String sql = query.sql();
+        probe = database.listener.statement(query, database.depth);
+        probe.begin(Operation.PREPARE);
 
         try {
-            if (query.keys().isEmpty()) {
+            Query.Options options = query.options();
+
+            if (!query.keys().isEmpty()) {
+                // Insert statement with returnable generated columns
+                statement = database.generatedKeysSelector.prepareInsertStatement(database.connection, query.sql(), query.keys());
+            } else if (options.hasDefaultResultSet()) {
                 // Regular query, update or execute statement
                 statement = database.connection.prepareStatement(sql);
             } else {
-                // Insert statement with returnable generated columns
-                statement = database.generatedKeysSelector.prepareInsertStatement(database.connection, query.sql(), query.keys());
+                statement = database.connection.prepareStatement(sql,
+                        options.resultType() == Query.ResultType.SCROLLABLE
+                                ? ResultSet.TYPE_SCROLL_INSENSITIVE
+                                : ResultSet.TYPE_FORWARD_ONLY,
+                        options.concurrency() == Query.Concurrency.UPDATABLE
+                                ? ResultSet.CONCUR_UPDATABLE
+                                : ResultSet.CONCUR_READ_ONLY);
             }
+
+            if (options.fetchSize() > 0) statement.setFetchSize(options.fetchSize());
+            if (options.maxRows() > 0) statement.setMaxRows(options.maxRows());
         } catch (SQLException e) {
-            throw new DatabaseException("SQL Error when executing query: " + sql, e);
+            discardTracker();
+            throw fail(Operation.PREPARE, new DatabaseException("SQL Error when executing query: " + sql, e));
+        } catch (RuntimeException e) {
+            discardTracker();
+            throw fail(Operation.PREPARE, e);
         }
+
+        probe.end(Operation.PREPARE, 0);
     }
 
     @Override
     public Cursor query() {
         checkNotClosed();
-        database.checkActive();
+        startExecution();
+        probe.begin(Operation.QUERY);
+        ResultSet resultSet = null;
 
         try {
-            Map<String, Cursor.Getter<?>> columns = new HashMap<>();
-            ResultSet resultSet = statement.executeQuery();
+            beginExecution();
+            if (!query.options().readOnly()) database.beginWrite();
+            resultSet = statement.executeQuery();
             ResultSetMetaData resultSetMetaData = resultSet.getMetaData();
+            int columnCount = resultSetMetaData.getColumnCount();
+            NameTable<Cursor.Getter<?>> columns = new NameTable<>(columnCount);
 
-            for (int i = 0, l = resultSetMetaData.getColumnCount(); i < l; i++) {
+            for (int i = 0; i < columnCount; i++) {
                 String rawColumnName = resultSetMetaData.getColumnName(i + 1);
 
                 if (rawColumnName.startsWith("\"") && rawColumnName.endsWith("\"")) {
@@ -54,151 +93,446 @@ final class JdbcStatement extends AbstractCloseable implements Statement {
                             .replace("\"\"", "\"");
                 }
 
-                String mappedColumnName = database.columnNameMapper.apply(rawColumnName).toLowerCase();
-                String columnName = null;
-                Class<?> columnType = null;
+                String mappedColumnName = database.columnNameMapper.apply(rawColumnName);
+                Query.Column column = query.column(rawColumnName);
+                if (column == null) column = query.column(mappedColumnName);
 
-                for (String c : new String[]{ rawColumnName.toLowerCase(), mappedColumnName }) {
-                    columnName = c;
-                    columnType = query.columns().get(c);
-
-                    if (columnType != null)
-                        break;
-                }
-
-                if (columnType != null) {
-                    Accessor<PreparedStatement, ResultSet, SQLException> accessor = database.accessorFactory.create(columnType);
+                if (column != null) {
+                    Accessor<PreparedStatement, ResultSet, SQLException> accessor = database.accessorFactory.create(column.type());
 
                     if (accessor == null) {
-                        throw new DatabaseException("No accessor is defined for type " + columnType + " (column " + rawColumnName + ")");
+                        throw new DatabaseException("No accessor is defined for type " + column.type() + " (column " + rawColumnName + ")");
                     }
 
                     ResultSetCursor.ResultSetGetter getter = new ResultSetCursor.ResultSetGetter(accessor, resultSet, i);
-                    columns.put(columnName, getter);
+                    columns.put(column.name(), getter);
 
-                    if (!columnName.equals(mappedColumnName))
+                    if (!column.name().equalsIgnoreCase(mappedColumnName))
                         columns.put(mappedColumnName, getter);
                 }
             }
 
-            return new ResultSetCursor(resultSet, columns);
+            probe.end(Operation.QUERY, 0);
+
+            return endImplicitTransactionOnClose(new ResultSetCursor(resultSet, columns, probe, this));
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            DatabaseException exception = closeResultSet(resultSet, exception(e));
+            endExecution();
+            throw fail(Operation.QUERY, abortImplicitTransaction(exception));
+        } catch (RuntimeException e) {
+            closeResultSet(resultSet, e);
+            endExecution();
+            throw fail(Operation.QUERY, abortImplicitTransaction(e));
         }
     }
 
     @Override
     public long update() {
         checkNotClosed();
-        database.checkActive();
+        startExecution();
+        probe.begin(Operation.EXECUTE);
 
         try {
-            return statement.executeUpdate();
+            beginExecution();
+            database.beginWrite();
+            long count = statement.executeUpdate();
+            endExecution();
+            endImplicitTransaction();
+            probe.end(Operation.EXECUTE, count);
+
+            return count;
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            DatabaseException exception = exception(e);
+            endExecution();
+            throw fail(Operation.EXECUTE, abortImplicitTransaction(exception));
+        } catch (RuntimeException e) {
+            endExecution();
+            throw fail(Operation.EXECUTE, abortImplicitTransaction(e));
         }
     }
 
     @Override
     public void execute() {
         checkNotClosed();
-        database.checkActive();
+        startExecution();
+        probe.begin(Operation.EXECUTE);
 
         try {
+            beginExecution();
+            database.beginWrite();
             statement.execute();
+            long count = statement.getUpdateCount();
+            endExecution();
+            endImplicitTransaction();
+            probe.end(Operation.EXECUTE, count);
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            DatabaseException exception = exception(e);
+            endExecution();
+            throw fail(Operation.EXECUTE, abortImplicitTransaction(exception));
+        } catch (RuntimeException e) {
+            endExecution();
+            throw fail(Operation.EXECUTE, abortImplicitTransaction(e));
         }
     }
 
     @Override
     public Cursor insert() {
         checkNotClosed();
-        database.checkActive();
+        startExecution();
+        probe.begin(Operation.EXECUTE);
+
+        try {
+            beginExecution();
+            database.beginWrite();
+            long count = statement.executeUpdate();
+            Cursor keys = database.generatedKeysSelector.selectGeneratedKeys(database, statement, query.keys());
+            endExecution();
+            probe.end(Operation.EXECUTE, count);
+
+            return endImplicitTransactionOnClose(keys);
+        } catch (SQLException e) {
+            DatabaseException exception = exception(e);
+            endExecution();
+            throw fail(Operation.EXECUTE, abortImplicitTransaction(exception));
+        } catch (RuntimeException e) {
+            endExecution();
+            throw fail(Operation.EXECUTE, abortImplicitTransaction(e));
+        }
+    }
+
+    @Override
+    public void cancel() {
+        synchronized (executionLock) {
+            if (!executing) return;
+
+            cancelled = true;
+        }
 
+        cancelStatement();
+    }
+
+    private void timeOut() {
+        timedOut = true;
+        cancelStatement();
+    }
+
+    private void cancelStatement() {
         try {
-            statement.executeUpdate();
-            return database.generatedKeysSelector.selectGeneratedKeys(database, statement, query.keys());
+            statement.cancel();
         } catch (SQLException e) {
             throw new DatabaseException(e);
         }
     }
 
+    /**
+     * Mark the statement as executing as soon as an execution method is entered, so a cancellation requested from then
+     * on applies to the execution even if it arrives before the query is sent to the driver, then check that the
+     * database is active.
+     */
+    private void startExecution() {
+        synchronized (executionLock) {
+            executing = true;
+            cancelled = false;
+            timedOut = false;
+        }
+
+        try {
+            database.checkActive();
+        } catch (RuntimeException e) {
+            endExecution();
+            throw e;
+        }
+    }
+
+    /**
+     * Start enforcing the timeout of the query and the deadline of the database for a new execution, unless it has
+     * already been cancelled.
+     */
+    private void beginExecution() throws SQLException {
+        if (cancelled) throw new QueryCancelledException("Query was cancelled: " + query.sql());
+
+        long timeout = query.options().timeoutNanos();
+
+        if (database.hasDeadline) {
+            long remaining = database.deadline - System.nanoTime();
+
+            if (remaining <= 0) {
+                throw new QueryTimeoutException("Transaction deadline passed before executing query: " + query.sql());
+            }
+
+            if (timeout == 0 || remaining < timeout) timeout = remaining;
+        }
+
+        if (timeout == 0) return;
+
+        // Drivers enforce query timeouts in whole seconds, if at all, so a watchdog also cancels the statement at the
+        // exact deadline.
+        statement.setQueryTimeout((int) Math.max(1, TimeUnit.NANOSECONDS.toSeconds(timeout + 999999999L)));
+        if (watchdog != null) watchdog.cancel(false);
+        watchdog = Watchdog.executor.schedule(this::timeOut, timeout, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stop enforcing the timeout once the statement has executed, or the cursor over the result of a query is closed,
+     * and reset the cancellation state so later cancellations have no effect until the next execution.
+     */
+    void endExecution() {
+        if (watchdog != null) {
+            watchdog.cancel(false);
+            watchdog = null;
+        }
+
+        synchronized (executionLock) {
+            executing = false;
+            cancelled = false;
+            timedOut = false;
+        }
+    }
+
+    /**
+     * @throws DatabaseException If the current execution has been cancelled or has timed out.
+     */
+    void checkNotCancelled() {
+        if (timedOut) throw new QueryTimeoutException("Query timed out: " + query.sql());
+        if (cancelled) throw new QueryCancelledException("Query was cancelled: " + query.sql());
+    }
+
+    /**
+     * Wrap an exception from the driver, reporting cancellations and timeouts as their distinct exception types.
+     */
+    DatabaseException exception(SQLException e) {
+        if (timedOut) return new QueryTimeoutException("Query timed out: " + query.sql(), e);
+        if (cancelled) return new QueryCancelledException("Query was cancelled: " + query.sql(), e);
+
+        // Timeouts enforced by the driver itself, reported as SQL state 57014 (query canceled) by some.
+        if (e instanceof SQLTimeoutException || "57014".equals(e.getSQLState())) {
+            return new QueryTimeoutException("Query timed out: " + query.sql(), e);
+        }
+
+        return new DatabaseException(e);
+    }
+
+    /**
+     * Commit the implicit transaction of a statement run directly on a database in manual commit mode.
+     */
+    private void endImplicitTransaction() throws SQLException {
+        if (database.hasImplicitTransaction()) database.endImplicitTransaction(true);
+    }
+
+    /**
+     * Commit the implicit transaction of a statement once the cursor over its result is closed.
+     */
+    private Cursor endImplicitTransactionOnClose(Cursor cursor) {
+        if (!database.hasImplicitTransaction()) return cursor;
+
+        return new ClosingCursor(() -> {
+            try {
+                endImplicitTransaction();
+            } catch (SQLException e) {
+                throw new DatabaseException(e);
+            }
+        }, cursor);
+    }
+
+    /**
+     * Close the result set of a query which failed before its cursor was created.
+     */
+    private static <E extends RuntimeException> E closeResultSet(ResultSet resultSet, E exception) {
+        if (resultSet != null) {
+            try {
+                resultSet.close();
+            } catch (SQLException closeException) {
+                exception.addSuppressed(closeException);
+            }
+        }
+
+        return exception;
+    }
+
+    /**
+     * Roll back the implicit transaction of a failed statement.
+     */
+    private <E extends RuntimeException> E abortImplicitTransaction(E exception) {
+        if (database.hasImplicitTransaction()) {
+            try {
+                database.endImplicitTransaction(false);
+            } catch (SQLException rollbackException) {
+                exception.addSuppressed(rollbackException);
+            }
+        }
+
+        return exception;
+    }
+
+    /**
+     * Report a failed operation to the probe.
+     */
+    private <E extends RuntimeException> E fail(Operation operation, E exception) {
+        probe.fail(operation, exception);
+        return exception;
+    }
+
     @Override
+    @SuppressWarnings("unchecked")
     public <T> Binder<T> binder(String parameter) {
         checkNotClosed();
-        Integer listSize = query.parameterListSizes().get(parameter.toLowerCase());
+        Query.Parameter symbol = query.parameter(parameter);
 
-        if (listSize == null) {
-            // Scalar parameter
-            String parameterName = parameter.toLowerCase();
-            Class<?> parameterType = query.parameters().get(parameterName);
+        if (symbol == null) {
+            throw new DatabaseException("No type is defined for parameter " + parameter);
+        }
 
-            if (parameterType == null) {
-                throw new DatabaseException("No type is defined for parameter " + parameter);
-            }
+        // Each binder is created once and reused for every lookup of its parameter.
+        Binder<?> binder = binders[symbol.index()];
 
-            int[] parameterIndices = query.parameterIndices().get(parameterName);
-            Accessor<PreparedStatement, ResultSet, SQLException> accessor = database.accessorFactory.create(parameterType);
+        if (binder == null) {
+            binder = createBinder(symbol);
+            binders[symbol.index()] = binder;
+        }
+
+        return (Binder<T>) binder;
+    }
+
+    private Binder<?> createBinder(Query.Parameter parameter) {
+        Query.Parameter[] elements = parameter.elements();
+
+        if (elements == null) {
+            // Scalar parameter
+            Accessor<PreparedStatement, ResultSet, SQLException> accessor = database.accessorFactory.create(parameter.type());
 
             if (accessor == null) {
-                throw new DatabaseException("No accessor is defined for type " + parameterType + " (parameter " + parameter + ")");
+                throw new DatabaseException("No accessor is defined for type " + parameter.type() + " (parameter " + parameter.name() + ")");
             }
 
-            return new JdbcBinder<>(statement, accessor, parameterIndices);
+            return new JdbcBinder<>(statement, probe, parameter.name(), accessor, parameter.indices());
         } else {
             // List parameter
-            ArrayList<Binder<Object>> binders = new ArrayList<>(listSize);
+            ArrayList<Binder<Object>> binders = new ArrayList<>(elements.length);
 
-            for (int i = 0; i < listSize; i++) {
-                binders.add(binder(Query.parameterListIndexer(parameter, i)));
+            for (Query.Parameter element : elements) {
+                binders.add(binder(element.name()));
             }
 
             return new ListBinder<>(binders);
         }
     }
 
+    /**
+     * The closed state is tracked locally so checking it makes no driver calls. When verifying the lifecycle, the
+     * driver is asked to confirm that an open statement is open.
+     */
     @Override
     protected final boolean isClosed() {
-        try {
-            return super.isClosed() || statement.isClosed();
-        } catch (SQLException e) {
-            throw new DatabaseException(e);
+        boolean closed = super.isClosed();
+
+        if (database.verifyLifecycle && !closed) {
+            try {
+                if (statement.isClosed()) {
+                    throw new DatabaseException("JDBC statement was closed while still open, for example by closing its connection");
+                }
+            } catch (SQLException e) {
+                throw new DatabaseException(e);
+            }
         }
+
+        return closed;
     }
 
     @Override
     public final void close() {
+        probe.begin(Operation.CLOSE);
+        endExecution();
+
         try {
+            for (Binder<?> binder : binders) {
+                if (binder instanceof JdbcBinder) ((JdbcBinder<?>) binder).free();
+            }
+
             statement.close();
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            throw fail(Operation.CLOSE, new DatabaseException(e));
         }
 
         super.close();
+        probe.end(Operation.CLOSE, 0);
     }
 
     private static final class JdbcBinder<T> implements Binder<T> {
 
         private final PreparedStatement statement;
+        private final DatabaseListener.Probe probe;
+        private final String parameter;
         private final Accessor<PreparedStatement, ?, SQLException> accessor;
         private final int[] indices;
+        private java.sql.Array[] arrays = null;
 
-        private JdbcBinder(PreparedStatement statement, Accessor<PreparedStatement, ?, SQLException> accessor, int[] indices) {
+        private JdbcBinder(PreparedStatement statement, DatabaseListener.Probe probe, String parameter,
+                           Accessor<PreparedStatement, ?, SQLException> accessor, int[] indices) {
             this.statement = statement;
+            this.probe = probe;
+            this.parameter = parameter;
             this.accessor = accessor;
             this.indices = indices;
         }
 
         @Override
         public void bind(T value) {
+            probe.begin(Operation.BIND);
+
             try {
-                for (int index : indices) accessor.set(statement, index, value);
+                if (accessor instanceof JdbcAccessor) {
+                    for (int i = 0; i < indices.length; i++) {
+                        java.sql.Array array = ((JdbcAccessor) accessor).bind(statement, indices[i], value);
+                        if (array == null && arrays == null) continue;
+
+                        // The previous array is no longer bound so it can be freed.
+                        if (arrays == null) arrays = new java.sql.Array[indices.length];
+                        if (arrays[i] != null) arrays[i].free();
+                        arrays[i] = array;
+                    }
+                } else {
+                    for (int index : indices) accessor.set(statement, index, value);
+                }
             } catch (SQLException e) {
-                throw new DatabaseException(e);
+                DatabaseException exception = new DatabaseException(e);
+                probe.fail(Operation.BIND, exception);
+                throw exception;
+            }
+
+            probe.bound(parameter, value);
+            probe.end(Operation.BIND, 0);
+        }
+
+        /**
+         * Free the arrays created for the bound values.
+         */
+        private void free() throws SQLException {
+            if (arrays == null) return;
+
+            for (int i = 0; i < arrays.length; i++) {
+                if (arrays[i] != null) arrays[i].free();
+                arrays[i] = null;
             }
         }
 
     }
 
+    /**
+     * Daemon thread cancelling statements which run past their timeout, started when first used.
+     */
+    private static final class Watchdog {
+
+        private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "dalwit-statement-watchdog");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        static {
+            executor.setRemoveOnCancelPolicy(true);
+        }
+
+    }
+
 }
@@ -7,20 +7,39 @@ import java.sql.SQLException;
 abstract class JdbcTransaction extends JdbcAbstractDatabase implements Transaction {
 
     private final JdbcAbstractDatabase parent;
+    private final DatabaseListener.Probe probe;
     private boolean committed = false;
 
     /**
      * Create a root level transaction. Committing this transaction will update the database.
      */
     JdbcTransaction(JdbcAbstractDatabase parent) {
-        super(parent.readonly, parent.connection, parent.accessorFactory, parent.generatedKeysSelector, parent.columnNameMapper);
+        super(parent.readonly, parent.connection, parent.accessorFactory, parent.generatedKeysSelector,
+                parent.columnNameMapper, parent.listener, parent.depth + 1, parent.verifyLifecycle);
         this.parent = parent;
+
+        try {
+            probe = listener.transaction(depth);
+        } catch (RuntimeException e) {
+            discardTracker();
+            throw e;
+        }
+
+        if (parent.hasDeadline) limitDeadline(parent.deadline);
     }
 
     abstract void commitTransaction() throws SQLException;
 
     abstract void rollbackTransaction() throws SQLException;
 
+    /**
+     * @return True if closing the transaction without committing it must roll it back. Read only transactions only
+     * read, so by default they are left to end along with their parent.
+     */
+    boolean rollbackOnClose() {
+        return !readonly;
+    }
+
     @Override
     public final Transaction transact() {
         checkActive();
@@ -30,7 +49,7 @@ abstract class JdbcTransaction extends JdbcAbstractDatabase implements Transacti
     @Override
     public Statement prepare(Query query) {
         checkActive();
-        return new JdbcStatement(this, query);
+        return createStatement(query);
     }
 
     @Override
@@ -38,12 +57,17 @@ abstract class JdbcTransaction extends JdbcAbstractDatabase implements Transacti
         checkActive();
         parent.checkIsChildTransaction(this);
 
+        probe.begin(DatabaseListener.Operation.COMMIT);
+
         try {
             commitTransaction();
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            DatabaseException exception = new DatabaseException(e);
+            probe.fail(DatabaseListener.Operation.COMMIT, exception);
+            throw exception;
         }
 
+        probe.end(DatabaseListener.Operation.COMMIT, 0);
         committed = true;
     }
 
@@ -52,12 +76,18 @@ abstract class JdbcTransaction extends JdbcAbstractDatabase implements Transacti
         checkActive();
         parent.checkIsChildTransaction(this);
 
-        if (!readonly && !committed) {
+        if (!committed && rollbackOnClose()) {
+            probe.begin(DatabaseListener.Operation.ROLLBACK);
+
             try {
                 rollbackTransaction();
             } catch (SQLException e) {
-                throw new DatabaseException(e);
+                DatabaseException exception = new DatabaseException(e);
+                probe.fail(DatabaseListener.Operation.ROLLBACK, exception);
+                throw exception;
             }
+
+            probe.end(DatabaseListener.Operation.ROLLBACK, 0);
         }
 
         parent.closeChildTransaction(this);
@@ -3,12 +3,15 @@ package com.devexed.dalwit.jdbc;
 import com.devexed.dalwit.Accessor;
 import com.devexed.dalwit.Cursor;
 import com.devexed.dalwit.DatabaseException;
+import com.devexed.dalwit.DatabaseListener;
+import com.devexed.dalwit.DatabaseListener.Operation;
+import com.devexed.dalwit.RowBatch;
 import com.devexed.dalwit.util.AbstractCloseable;
+import com.devexed.dalwit.util.NameTable;
 
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.Map;
 
 /**
  * A cursor over a JDBC result set.
@@ -16,11 +19,26 @@ import java.util.Map;
 public final class ResultSetCursor extends AbstractCloseable implements Cursor {
 
     private final ResultSet resultSet;
-    public final Map<String, Getter<?>> columns;
+    private final NameTable<Getter<?>> columns;
+    private final DatabaseListener.Probe probe;
+    private final JdbcStatement statement;
+    private long rows = 0;
 
-    ResultSetCursor(ResultSet resultSet, Map<String, Getter<?>> columns) {
+    ResultSetCursor(ResultSet resultSet, NameTable<Getter<?>> columns) {
+        this(resultSet, columns, DatabaseListener.Probe.NONE, null);
+    }
+
+    /**
+     * @param statement The statement whose query this cursor iterates over, checked for cancellation and timeouts on
+     *                  every row, or null if the cursor can not be cancelled.
+     */
+    ResultSetCursor(ResultSet resultSet, NameTable<Getter<?>> columns, DatabaseListener.Probe probe,
+                    JdbcStatement statement) {
         this.resultSet = resultSet;
         this.columns = columns;
+        this.probe = probe;
+        this.statement = statement;
+        probe.begin(Operation.ITERATE);
     }
 
     @Override
@@ -48,36 +66,130 @@ public final class ResultSetCursor extends AbstractCloseable implements Cursor {
     @Override
     public boolean next() {
         checkNotClosed();
+        if (statement != null) statement.checkNotCancelled();
+
+        probe.begin(Operation.FETCH);
+        boolean hasRow;
 
         try {
-            return resultSet.next();
+            hasRow = resultSet.next();
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            DatabaseException exception = statement != null ? statement.exception(e) : new DatabaseException(e);
+            probe.fail(Operation.FETCH, exception);
+            throw exception;
         }
+
+        if (hasRow) rows++;
+
+        probe.end(Operation.FETCH, hasRow ? 1 : 0);
+
+        return hasRow;
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Getter<T> getter(String column) {
-        return (Getter<T>) columns.get(column.toLowerCase());
+        return (Getter<T>) columns.get(column);
+    }
+
+    /**
+     * Fetch rows into a batch directly from the result set. Primitive columns read by the default accessors are read
+     * with the primitive getters of the result set so no value is boxed. Other columns are read by their accessor.
+     */
+    @Override
+    public int fetch(RowBatch batch) {
+        checkNotClosed();
+        if (statement != null) statement.checkNotCancelled();
+
+        ResultSetGetter[] getters = new ResultSetGetter[batch.columnCount()];
+        boolean[] primitive = new boolean[getters.length];
+
+        for (int c = 0; c < getters.length; c++) {
+            Getter<?> getter = columns.get(batch.name(c));
+
+            if (!(getter instanceof ResultSetGetter)) {
+                throw new DatabaseException("No column " + batch.name(c) + " in cursor");
+            }
+
+            getters[c] = (ResultSetGetter) getter;
+            primitive[c] = DefaultJdbcAccessorFactory.isDefault(getters[c].accessor);
+        }
+
+        batch.clear();
+        probe.begin(Operation.FETCH);
+        int row = 0;
+
+        try {
+            while (row < batch.capacity() && resultSet.next()) {
+                for (int c = 0; c < getters.length; c++) {
+                    if (!primitive[c]) {
+                        batch.set(c, row, getters[c].accessor.get(resultSet, getters[c].index));
+                        continue;
+                    }
+
+                    int index = getters[c].index + 1;
+
+                    switch (batch.type(c)) {
+                        case INT: {
+                            int value = resultSet.getInt(index);
+                            if (resultSet.wasNull()) batch.setNull(c, row);
+                            else batch.ints(c)[row] = value;
+                            break;
+                        }
+                        case LONG: {
+                            long value = resultSet.getLong(index);
+                            if (resultSet.wasNull()) batch.setNull(c, row);
+                            else batch.longs(c)[row] = value;
+                            break;
+                        }
+                        case DOUBLE: {
+                            double value = resultSet.getDouble(index);
+                            if (resultSet.wasNull()) batch.setNull(c, row);
+                            else batch.doubles(c)[row] = value;
+                            break;
+                        }
+                        default:
+                            batch.set(c, row, getters[c].accessor.get(resultSet, getters[c].index));
+                            break;
+                    }
+                }
+
+                row++;
+            }
+        } catch (SQLException e) {
+            DatabaseException exception = statement != null ? statement.exception(e) : new DatabaseException(e);
+            probe.fail(Operation.FETCH, exception);
+            throw exception;
+        }
+
+        rows += row;
+        batch.size(row);
+        probe.end(Operation.FETCH, row);
+
+        return row;
     }
 
     @Override
     public void close() {
+        if (statement != null) statement.endExecution();
+
         try {
             resultSet.close();
         } catch (SQLException e) {
-            throw new DatabaseException(e);
+            DatabaseException exception = new DatabaseException(e);
+            probe.fail(Operation.ITERATE, exception);
+            throw exception;
         }
 
         super.close();
+        probe.end(Operation.ITERATE, rows);
     }
 
     static final class ResultSetGetter implements Cursor.Getter<Object> {
 
-        private final Accessor<PreparedStatement, ResultSet, SQLException> accessor;
+        final Accessor<PreparedStatement, ResultSet, SQLException> accessor;
         private final ResultSet resultSet;
-        private final int index;
+        final int index;
 
         ResultSetGetter(Accessor<PreparedStatement, ResultSet, SQLException> accessor, ResultSet resultSet, int index) {
             this.accessor = accessor;
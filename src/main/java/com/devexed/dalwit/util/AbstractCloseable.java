@@ -4,10 +4,12 @@ import com.devexed.dalwit.Closeable;
 import com.devexed.dalwit.DatabaseException;
 
 /**
- * Base class to implement closeable objects.
+ * Base class to implement closeable objects. Instances which are never closed can be found with the
+ * {@link LeakDetector}.
  */
 public class AbstractCloseable implements Closeable {
 
+    private final LeakDetector.Tracker tracker = LeakDetector.track(this);
     private boolean closed = false;
 
     /**
@@ -26,6 +28,14 @@ public class AbstractCloseable implements Closeable {
         return closed;
     }
 
+    /**
+     * Stop tracking this closable for leaks. Constructors which throw after it was created must call this, as the
+     * caller never receives the instance to close it.
+     */
+    protected final void discardTracker() {
+        if (tracker != null) tracker.close();
+    }
+
     /**
      * Close this closable.
      */
@@ -33,6 +43,7 @@ public class AbstractCloseable implements Closeable {
     public void close() {
         if (closed) throw new DatabaseException("Already closed");
         closed = true;
+        if (tracker != null) tracker.close();
     }
 
 }
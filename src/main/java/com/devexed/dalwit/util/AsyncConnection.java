@@ -0,0 +1,94 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.Connection;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * <p>Asynchronous facade over a {@link Connection}, opening databases whose operations return
+ * {@link CompletableFuture}s instead of blocking the caller.</p>
+ * <p>Each opened database runs its operations one at a time in submission order on the connection's executor, so its
+ * JDBC connection is never used by two threads at once. Many databases can share one executor. Dependent stages which
+ * are not run asynchronously run on the thread of the database and delay its other operations, so should be kept
+ * short.</p>
+ *
+ * @see AsyncDatabase
+ */
+public final class AsyncConnection {
+
+    private final Connection connection;
+    private final Executor executor;
+
+    /**
+     * Create an asynchronous connection running operations on the {@link #defaultExecutor()}.
+     *
+     * @param connection The connection to open databases with.
+     */
+    public AsyncConnection(Connection connection) {
+        this(connection, defaultExecutor());
+    }
+
+    /**
+     * @param connection The connection to open databases with.
+     * @param executor   The executor running the operations of the opened databases.
+     */
+    public AsyncConnection(Connection connection, Executor executor) {
+        this.connection = connection;
+        this.executor = executor;
+    }
+
+    /**
+     * @return The executor used when none is given. Starts a virtual thread per task on runtimes which support them,
+     * that is Java 21 or later, and otherwise runs tasks on a shared pool of daemon threads.
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutor.executor;
+    }
+
+    /**
+     * Open a writable database.
+     *
+     * @return A future completed with the database once it is open.
+     */
+    public CompletableFuture<AsyncDatabase> write() {
+        SerialExecutor serialExecutor = new SerialExecutor(executor);
+
+        return CompletableFuture.supplyAsync(() -> new AsyncDatabase(connection.write(), serialExecutor),
+                serialExecutor);
+    }
+
+    /**
+     * Open a read only database.
+     *
+     * @return A future completed with the database once it is open.
+     */
+    public CompletableFuture<AsyncDatabase> read() {
+        SerialExecutor serialExecutor = new SerialExecutor(executor);
+
+        return CompletableFuture.supplyAsync(() -> new AsyncDatabase(connection.read(), serialExecutor),
+                serialExecutor);
+    }
+
+    private static final class DefaultExecutor {
+
+        private static final Executor executor = create();
+
+        private static Executor create() {
+            try {
+                // Looked up reflectively so the library still runs on Java 8.
+                return (Executor) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                return Executors.newCachedThreadPool(runnable -> {
+                    Thread thread = new Thread(runnable, "dalwit-async");
+                    thread.setDaemon(true);
+
+                    return thread;
+                });
+            }
+        }
+
+    }
+
+}
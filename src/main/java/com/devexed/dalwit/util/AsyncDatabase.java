@@ -0,0 +1,120 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * <p>Asynchronous facade over a database opened by an {@link AsyncConnection}. Operations are run one at a time in
+ * submission order on the thread of the database, and their results or failures are delivered through the returned
+ * futures.</p>
+ * <p>Cursors are only valid on the thread of the database, so queries take a reader function which is applied to the
+ * cursor there and whose result completes the future. The cursor is closed once the reader returns.</p>
+ */
+public final class AsyncDatabase {
+
+    private final ReadonlyDatabase database;
+    private final Executor executor;
+
+    AsyncDatabase(ReadonlyDatabase database, Executor executor) {
+        this.database = database;
+        this.executor = executor;
+    }
+
+    /**
+     * Run work using the database on its thread.
+     *
+     * @param work The work to run.
+     * @param <T>  The type of the result of the work.
+     * @return A future completed with the result of the work.
+     */
+    public <T> CompletableFuture<T> run(Function<? super ReadonlyDatabase, T> work) {
+        return CompletableFuture.supplyAsync(() -> work.apply(database), executor);
+    }
+
+    /**
+     * Prepare a statement to run repeatedly.
+     *
+     * @param query The query to prepare.
+     * @return A future completed with the prepared statement.
+     */
+    public CompletableFuture<AsyncStatement> prepare(Query query) {
+        return run(database -> new AsyncStatement(database.prepare(query), executor));
+    }
+
+    /**
+     * @param query      The query to run.
+     * @param parameters The values of the parameters of the query by name.
+     * @param reader     The function reading the result from the cursor over the rows of the query.
+     * @param <T>        The type of the result.
+     * @return A future completed with the result read from the cursor.
+     */
+    public <T> CompletableFuture<T> query(Query query, Map<String, ?> parameters, Function<? super Cursor, T> reader) {
+        return run(database -> {
+            try (ReadonlyStatement statement = database.prepare(query)) {
+                return AsyncStatement.query(statement, parameters, reader);
+            }
+        });
+    }
+
+    /**
+     * @param query      The query to run.
+     * @param parameters The values of the parameters of the query by name.
+     * @return A future completed with the number of rows affected.
+     */
+    public CompletableFuture<Long> update(Query query, Map<String, ?> parameters) {
+        return run(database -> {
+            try (Statement statement = writable(database).prepare(query)) {
+                AsyncStatement.bind(statement, parameters);
+
+                return statement.update();
+            }
+        });
+    }
+
+    /**
+     * @param query      The query to run.
+     * @param parameters The values of the parameters of the query by name.
+     * @param reader     The function reading the result from the cursor over the generated keys.
+     * @param <T>        The type of the result.
+     * @return A future completed with the result read from the cursor.
+     */
+    public <T> CompletableFuture<T> insert(Query query, Map<String, ?> parameters, Function<? super Cursor, T> reader) {
+        return run(database -> {
+            try (Statement statement = writable(database).prepare(query)) {
+                return AsyncStatement.insert(statement, parameters, reader);
+            }
+        });
+    }
+
+    /**
+     * Run work in a transaction and commit it, retrying transient failures with the default retry policy.
+     *
+     * @param work The work to run. Must be safe to run multiple times.
+     * @param <T>  The type of the result of the work.
+     * @return A future completed with the result of the work once committed.
+     * @see Database#transact(Transaction.Work)
+     */
+    public <T> CompletableFuture<T> transact(Transaction.Work<T> work) {
+        return run(database -> writable(database).transact(work));
+    }
+
+    /**
+     * Close the database once all previously submitted operations have run.
+     *
+     * @return A future completed once the database is closed.
+     */
+    public CompletableFuture<Void> close() {
+        return CompletableFuture.runAsync(database::close, executor);
+    }
+
+    static Database writable(ReadonlyDatabase database) {
+        if (!(database instanceof Database)) throw new DatabaseException("Database is read only");
+
+        return (Database) database;
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.*;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+
+/**
+ * Asynchronous facade over a statement prepared by an {@link AsyncDatabase}, running on the thread of its database.
+ * Parameters are bound along with each execution, so concurrent submissions do not overwrite each other's values.
+ */
+public final class AsyncStatement {
+
+    private final ReadonlyStatement statement;
+    private final Executor executor;
+
+    AsyncStatement(ReadonlyStatement statement, Executor executor) {
+        this.statement = statement;
+        this.executor = executor;
+    }
+
+    /**
+     * @param parameters The values of the parameters of the query by name.
+     * @param reader     The function reading the result from the cursor over the rows of the query.
+     * @param <T>        The type of the result.
+     * @return A future completed with the result read from the cursor.
+     */
+    public <T> CompletableFuture<T> query(Map<String, ?> parameters, Function<? super Cursor, T> reader) {
+        return CompletableFuture.supplyAsync(() -> query(statement, parameters, reader), executor);
+    }
+
+    /**
+     * @param parameters The values of the parameters of the query by name.
+     * @return A future completed with the number of rows affected.
+     */
+    public CompletableFuture<Long> update(Map<String, ?> parameters) {
+        return CompletableFuture.supplyAsync(() -> {
+            Statement writableStatement = writable(statement);
+            bind(writableStatement, parameters);
+
+            return writableStatement.update();
+        }, executor);
+    }
+
+    /**
+     * @param parameters The values of the parameters of the query by name.
+     * @return A future completed once the statement has been executed.
+     */
+    public CompletableFuture<Void> execute(Map<String, ?> parameters) {
+        return CompletableFuture.runAsync(() -> {
+            Statement writableStatement = writable(statement);
+            bind(writableStatement, parameters);
+            writableStatement.execute();
+        }, executor);
+    }
+
+    /**
+     * @param parameters The values of the parameters of the query by name.
+     * @param reader     The function reading the result from the cursor over the generated keys.
+     * @param <T>        The type of the result.
+     * @return A future completed with the result read from the cursor.
+     */
+    public <T> CompletableFuture<T> insert(Map<String, ?> parameters, Function<? super Cursor, T> reader) {
+        return CompletableFuture.supplyAsync(() -> insert(writable(statement), parameters, reader), executor);
+    }
+
+    /**
+     * Cancel the running execution of this statement. Runs immediately on the calling thread rather than after the
+     * submitted operations.
+     *
+     * @see ReadonlyStatement#cancel()
+     */
+    public void cancel() {
+        statement.cancel();
+    }
+
+    /**
+     * Close the statement once all previously submitted operations have run.
+     *
+     * @return A future completed once the statement is closed.
+     */
+    public CompletableFuture<Void> close() {
+        return CompletableFuture.runAsync(statement::close, executor);
+    }
+
+    static void bind(ReadonlyStatement statement, Map<String, ?> parameters) {
+        for (Map.Entry<String, ?> e : parameters.entrySet()) statement.bind(e.getKey(), e.getValue());
+    }
+
+    static <T> T query(ReadonlyStatement statement, Map<String, ?> parameters, Function<? super Cursor, T> reader) {
+        bind(statement, parameters);
+
+        try (Cursor cursor = statement.query()) {
+            return reader.apply(cursor);
+        }
+    }
+
+    static <T> T insert(Statement statement, Map<String, ?> parameters, Function<? super Cursor, T> reader) {
+        bind(statement, parameters);
+
+        try (Cursor cursor = statement.insert()) {
+            return reader.apply(cursor);
+        }
+    }
+
+    private static Statement writable(ReadonlyStatement statement) {
+        if (!(statement instanceof Statement)) throw new DatabaseException("Statement is read only");
+
+        return (Statement) statement;
+    }
+
+}
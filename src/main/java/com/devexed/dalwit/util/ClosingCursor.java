@@ -2,6 +2,7 @@ package com.devexed.dalwit.util;
 
 import com.devexed.dalwit.Closeable;
 import com.devexed.dalwit.Cursor;
+import com.devexed.dalwit.RowBatch;
 
 /**
  * Cursor which closes a paren closable when it itself is closed.
@@ -36,6 +37,11 @@ public class ClosingCursor implements Cursor {
         return cursor.next();
     }
 
+    @Override
+    public int fetch(RowBatch batch) {
+        return cursor.fetch(batch);
+    }
+
     @Override
     public void close() {
         cursor.close();
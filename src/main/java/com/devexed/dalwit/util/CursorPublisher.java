@@ -0,0 +1,224 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.Cursor;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * <p>Publishes the rows of a cursor to a single {@link Flow.Subscriber}, fetching rows only as the subscriber requests
+ * them. Rows are fetched, mapped and delivered on a fetch executor, one signal at a time, so neither the subscriber nor
+ * the cursor is ever used by two threads at once.</p>
+ * <p>The cursor is closed once the subscription completes, fails or is cancelled. Cursors returned by
+ * {@link com.devexed.dalwit.Query.ReadonlyStatementBuilder#query()} also close their statement when closed.</p>
+ * <p>Requires a runtime with {@link Flow}, that is Java 9 or later. This class is only loaded when it is used, so
+ * the rest of the library is unaffected on Java 8.</p>
+ *
+ * @param <T> The type of the published rows.
+ */
+public final class CursorPublisher<T> implements Flow.Publisher<T> {
+
+    private final Cursor cursor;
+    private final Function<? super Cursor, ? extends T> mapper;
+    private final Executor executor;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Create a publisher fetching rows on the {@link #defaultExecutor()}.
+     *
+     * @param cursor The cursor over the rows to publish.
+     * @param mapper The function reading the published value from the current row of the cursor.
+     */
+    public CursorPublisher(Cursor cursor, Function<? super Cursor, ? extends T> mapper) {
+        this(cursor, mapper, defaultExecutor());
+    }
+
+    /**
+     * @param cursor   The cursor over the rows to publish.
+     * @param mapper   The function reading the published value from the current row of the cursor.
+     * @param executor The executor on which to fetch rows and signal the subscriber.
+     */
+    public CursorPublisher(Cursor cursor, Function<? super Cursor, ? extends T> mapper, Executor executor) {
+        this.cursor = cursor;
+        this.mapper = mapper;
+        this.executor = executor;
+    }
+
+    /**
+     * Publish the rows of a cursor as objects, like {@link ObjectDescriptor#iterate(Cursor)}.
+     *
+     * @param descriptor The descriptor of the objects.
+     * @param cursor     The cursor over the rows to publish.
+     * @param executor   The executor on which to fetch rows and signal the subscriber.
+     * @param <T>        The type of the objects.
+     * @return The publisher of the objects.
+     */
+    public static <T> CursorPublisher<T> of(ObjectDescriptor<T> descriptor, Cursor cursor, Executor executor) {
+        ObjectGetter<T> getter = descriptor.getter(cursor);
+
+        return new CursorPublisher<>(cursor, c -> getter.get(), executor);
+    }
+
+    /**
+     * @return The executor used when none is given, a shared pool of daemon fetch threads.
+     */
+    public static Executor defaultExecutor() {
+        return DefaultExecutor.executor;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException("Cursor publishers only support a single subscriber"));
+
+            return;
+        }
+
+        CursorSubscription subscription = new CursorSubscription(subscriber);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private final class CursorSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean cancelled = false;
+        private volatile RuntimeException requestError = null;
+        private volatile boolean done = false;
+
+        private CursorSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                requestError = new IllegalArgumentException("Requested " + n + " rows, must request at least one");
+            } else {
+                demand.getAndAccumulate(n, (current, added) -> {
+                    long sum = current + added;
+                    return sum < 0 ? Long.MAX_VALUE : sum;
+                });
+            }
+
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) executor.execute(this::drain);
+        }
+
+        private void drain() {
+            while (true) {
+                try {
+                    emit();
+                } finally {
+                    draining.set(false);
+                }
+
+                // Stop unless demand, a cancellation or an error arrived after emitting stopped.
+                if (done || (demand.get() == 0 && !cancelled && requestError == null)) return;
+                if (!draining.compareAndSet(false, true)) return;
+            }
+        }
+
+        private void emit() {
+            while (!done) {
+                if (requestError != null) {
+                    RuntimeException closeException = finish();
+                    if (closeException != null) requestError.addSuppressed(closeException);
+                    subscriber.onError(requestError);
+
+                    return;
+                }
+
+                if (cancelled) {
+                    finish();
+                    return;
+                }
+
+                if (demand.get() == 0) return;
+
+                T value;
+
+                try {
+                    if (!cursor.next()) {
+                        RuntimeException closeException = finish();
+
+                        if (closeException != null) subscriber.onError(closeException);
+                        else subscriber.onComplete();
+
+                        return;
+                    }
+
+                    value = mapper.apply(cursor);
+                } catch (RuntimeException e) {
+                    RuntimeException closeException = finish();
+                    if (closeException != null) e.addSuppressed(closeException);
+                    subscriber.onError(e);
+
+                    return;
+                }
+
+                demand.decrementAndGet();
+
+                try {
+                    subscriber.onNext(value);
+                } catch (RuntimeException e) {
+                    // A subscriber throwing from onNext is considered to have cancelled its subscription.
+                    finish();
+                    throw e;
+                }
+            }
+        }
+
+        /**
+         * End the subscription and close the cursor.
+         *
+         * @return The exception thrown while closing the cursor, if any.
+         */
+        private RuntimeException finish() {
+            done = true;
+
+            try {
+                cursor.close();
+                return null;
+            } catch (RuntimeException e) {
+                return e;
+            }
+        }
+
+    }
+
+    private static final class DefaultExecutor {
+
+        private static final Executor executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "dalwit-fetch");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+    }
+
+}
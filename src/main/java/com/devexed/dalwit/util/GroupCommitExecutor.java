@@ -0,0 +1,188 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.Closeable;
+import com.devexed.dalwit.Database;
+import com.devexed.dalwit.DatabaseException;
+import com.devexed.dalwit.Transaction;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Executor which groups small units of work into a shared root transaction, so that many independent writes are
+ * made durable by a single commit. Each unit is run in its own nested transaction so that a failing unit is rolled
+ * back without affecting the other units in the group.</p>
+ * <p>The units are run on a dedicated writer thread which becomes the only user of the database until the executor
+ * is closed. The future of a unit is completed only once the shared root transaction has been committed.</p>
+ */
+public final class GroupCommitExecutor implements Closeable {
+
+    private static final Unit<?> closeMarker = new Unit<>(null);
+
+    private final Database database;
+    private final int maxGroupSize;
+    private final long windowNanos;
+    private final LinkedBlockingQueue<Unit<?>> queue;
+    private final Thread thread;
+    private boolean closed = false;
+    private boolean stopped = false;
+
+    /**
+     * Create an executor grouping units of work submitted within a time window.
+     *
+     * @param database     The database on which to run the work. Must not be used by other threads until the executor
+     *                     is closed.
+     * @param maxGroupSize The maximum number of units committed by a single root transaction.
+     * @param window       The time to wait for more units after the first unit of a group is submitted.
+     * @param unit         The unit of the window.
+     */
+    public GroupCommitExecutor(Database database, int maxGroupSize, long window, TimeUnit unit) {
+        if (maxGroupSize <= 0) throw new DatabaseException("Group size must be one or greater");
+
+        this.database = database;
+        this.maxGroupSize = maxGroupSize;
+        this.windowNanos = unit.toNanos(window);
+        queue = new LinkedBlockingQueue<>();
+        thread = new Thread(this::run, "dalwit-group-commit");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Submit a unit of work to be run in the next group.
+     *
+     * @param work The work to run.
+     * @param <T>  The type of the result of the work.
+     * @return A future completed with the result of the work once the group has been committed, or completed
+     * exceptionally if either the work or the commit of the group failed.
+     * @throws DatabaseException If the executor is closed, or its writer thread has stopped.
+     */
+    public <T> CompletableFuture<T> submit(Transaction.Work<T> work) {
+        Unit<T> unit = new Unit<>(work);
+
+        synchronized (this) {
+            if (closed) throw new DatabaseException("Already closed");
+            if (stopped) throw new DatabaseException("Group commit executor has stopped");
+            queue.add(unit);
+        }
+
+        return unit.future;
+    }
+
+    /**
+     * Close the executor, waiting for all submitted work to be committed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) throw new DatabaseException("Already closed");
+            closed = true;
+            queue.add(closeMarker);
+        }
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        }
+    }
+
+    private void run() {
+        ArrayList<Unit<?>> group = new ArrayList<>(maxGroupSize);
+        boolean running = true;
+        Throwable failure = new DatabaseException("Group commit executor was interrupted");
+
+        try {
+            while (running) {
+                Unit<?> first = queue.take();
+
+                if (first == closeMarker) break;
+
+                group.add(first);
+                long deadline = System.nanoTime() + windowNanos;
+
+                // Collect units until the window has passed or the group is full.
+                while (group.size() < maxGroupSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Unit<?> next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+
+                    if (next == null) break;
+
+                    if (next == closeMarker) {
+                        running = false;
+                        break;
+                    }
+
+                    group.add(next);
+                }
+
+                commit(group);
+                group.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Throwable e) {
+            failure = e;
+            throw e;
+        } finally {
+            synchronized (this) {
+                stopped = true;
+            }
+
+            // Fail any units that could not be run, so no caller waits forever on a stopped writer thread.
+            for (Unit<?> unit : group) unit.future.completeExceptionally(failure);
+            for (Unit<?> unit : queue) if (unit != closeMarker) unit.future.completeExceptionally(failure);
+        }
+    }
+
+    /**
+     * Run and commit a group. Errors thrown by a unit, unlike exceptions, stop the writer thread, which then fails the
+     * group along with all queued units.
+     */
+    private void commit(ArrayList<Unit<?>> group) {
+        try (Transaction transaction = database.transact()) {
+            for (Unit<?> unit : group) unit.run(transaction);
+            transaction.commit();
+        } catch (RuntimeException e) {
+            for (Unit<?> unit : group) unit.future.completeExceptionally(e);
+            return;
+        }
+
+        for (Unit<?> unit : group) unit.complete();
+    }
+
+    private static final class Unit<T> {
+
+        private final Transaction.Work<T> work;
+        private final CompletableFuture<T> future;
+        private T result;
+        private RuntimeException error;
+
+        private Unit(Transaction.Work<T> work) {
+            this.work = work;
+            future = new CompletableFuture<>();
+        }
+
+        /**
+         * Run the work within a savepoint of the group transaction, isolating its failure from the rest of the group.
+         */
+        private void run(Transaction parent) {
+            try (Transaction transaction = parent.transact()) {
+                result = work.run(transaction);
+                transaction.commit();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+        private void complete() {
+            if (error != null) future.completeExceptionally(error);
+            else future.complete(result);
+        }
+
+    }
+
+}
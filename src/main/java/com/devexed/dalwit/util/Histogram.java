@@ -0,0 +1,133 @@
+package com.devexed.dalwit.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * <p>Lock free histogram of non-negative long values, typically latencies in nanoseconds. Values are counted in
+ * log-linear buckets: every power of two range is split into 16 equally wide buckets, so recorded values are
+ * reproduced within about 6% of their actual value regardless of magnitude.</p>
+ * <p>Recording is safe from any number of threads. A {@link Snapshot} gives a consistent view for computing
+ * percentiles.</p>
+ */
+public final class Histogram {
+
+    private static final int subBucketBits = 4;
+    private static final int subBucketCount = 1 << subBucketBits;
+    private static final int bucketCount = subBucketCount + (63 - subBucketBits) * subBucketCount;
+
+    private final AtomicLongArray counts = new AtomicLongArray(bucketCount);
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a value. Negative values are recorded as zero.
+     *
+     * @param value The value to record.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+
+        counts.incrementAndGet(bucketIndex(value));
+        sum.addAndGet(value);
+        if (value > max.get()) max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return A snapshot of the values recorded so far.
+     */
+    public Snapshot snapshot() {
+        long[] snapshotCounts = new long[bucketCount];
+        long count = 0;
+
+        for (int i = 0; i < bucketCount; i++) {
+            snapshotCounts[i] = counts.get(i);
+            count += snapshotCounts[i];
+        }
+
+        return new Snapshot(snapshotCounts, count, sum.get(), max.get());
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < subBucketCount) return (int) value;
+
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - subBucketBits)) & (subBucketCount - 1);
+
+        return subBucketCount + (exponent - subBucketBits) * subBucketCount + subBucket;
+    }
+
+    /**
+     * @return The value in the middle of the range of values counted by a bucket.
+     */
+    private static long bucketValue(int index) {
+        if (index < subBucketCount) return index;
+
+        int exponent = (index - subBucketCount) / subBucketCount + subBucketBits;
+        long subBucket = (index - subBucketCount) % subBucketCount;
+        long width = 1L << (exponent - subBucketBits);
+
+        return (1L << exponent) + subBucket * width + width / 2;
+    }
+
+    /**
+     * An immutable view of the values recorded by a histogram.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * @return The number of recorded values.
+         */
+        public long count() {
+            return count;
+        }
+
+        /**
+         * @return The mean of the recorded values, or zero if no values were recorded.
+         */
+        public double mean() {
+            return count > 0 ? (double) sum / count : 0;
+        }
+
+        /**
+         * @return The greatest recorded value.
+         */
+        public long max() {
+            return max;
+        }
+
+        /**
+         * @param percentile The percentile between 0 and 100.
+         * @return The approximate value below which the given percentage of the recorded values fall, or zero if no
+         * values were recorded.
+         */
+        public long percentile(double percentile) {
+            if (count == 0) return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+
+                if (seen >= rank) return Math.min(bucketValue(i), max);
+            }
+
+            return max;
+        }
+
+    }
+
+}
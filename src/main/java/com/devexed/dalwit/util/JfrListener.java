@@ -0,0 +1,169 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.DatabaseListener;
+import com.devexed.dalwit.Query;
+import jdk.jfr.*;
+
+/**
+ * <p>Listener which emits Java Flight Recorder events for preparing and executing statements, iterating cursors,
+ * committing and rolling back transactions and opening databases. Events carry the fingerprint of the statement's
+ * query (see {@link Query#fingerprint()}) and the transaction nesting depth, and are grouped under the
+ * <code>Dalwit</code> category in recordings.</p>
+ * <p>Whether events are enabled is checked when a statement or transaction is opened. When no recording has enabled
+ * them the shared no-op probe is returned, so the listener costs nothing beyond that check.</p>
+ * <p>Requires a runtime with the <code>jdk.jfr</code> module, that is Java 11 or later or Java 8 update 262 or
+ * later. This class is only loaded when the listener is used, so the rest of the library is unaffected on other
+ * runtimes.</p>
+ */
+public final class JfrListener implements DatabaseListener {
+
+    private static final EventType prepareType = EventType.getEventType(PrepareEvent.class);
+    private static final EventType executeType = EventType.getEventType(ExecuteEvent.class);
+    private static final EventType iterateType = EventType.getEventType(IterateEvent.class);
+    private static final EventType commitType = EventType.getEventType(CommitEvent.class);
+    private static final EventType rollbackType = EventType.getEventType(RollbackEvent.class);
+    private static final EventType connectType = EventType.getEventType(ConnectEvent.class);
+
+    @Override
+    public Probe statement(Query query, int depth) {
+        if (!prepareType.isEnabled() && !executeType.isEnabled() && !iterateType.isEnabled()) return Probe.NONE;
+
+        return new EventProbe(query.fingerprint(), depth);
+    }
+
+    @Override
+    public Probe transaction(int depth) {
+        if (!commitType.isEnabled() && !rollbackType.isEnabled()) return Probe.NONE;
+
+        return new EventProbe(null, depth);
+    }
+
+    @Override
+    public Probe connection() {
+        if (!connectType.isEnabled()) return Probe.NONE;
+
+        return new EventProbe(null, 0);
+    }
+
+    private static final class EventProbe implements Probe {
+
+        private static final Operation[] operations = Operation.values();
+
+        private final String fingerprint;
+        private final int depth;
+        private final DalwitEvent[] events = new DalwitEvent[operations.length];
+
+        private EventProbe(String fingerprint, int depth) {
+            this.fingerprint = fingerprint;
+            this.depth = depth;
+        }
+
+        private static DalwitEvent createEvent(Operation operation) {
+            switch (operation) {
+                case PREPARE:
+                    return new PrepareEvent();
+                case QUERY:
+                case EXECUTE:
+                    return new ExecuteEvent();
+                case ITERATE:
+                    return new IterateEvent();
+                case COMMIT:
+                    return new CommitEvent();
+                case ROLLBACK:
+                    return new RollbackEvent();
+                case CONNECT:
+                    return new ConnectEvent();
+                default:
+                    return null;
+            }
+        }
+
+        @Override
+        public void begin(Operation operation) {
+            DalwitEvent event = createEvent(operation);
+            if (event == null || !event.isEnabled()) return;
+
+            event.fingerprint = fingerprint;
+            event.depth = depth;
+            event.operation = operation.name();
+            event.begin();
+            events[operation.ordinal()] = event;
+        }
+
+        @Override
+        public void end(Operation operation, long count) {
+            DalwitEvent event = events[operation.ordinal()];
+            if (event == null) return;
+
+            events[operation.ordinal()] = null;
+            event.count = count;
+            event.commit();
+        }
+
+        @Override
+        public void fail(Operation operation, RuntimeException exception) {
+            DalwitEvent event = events[operation.ordinal()];
+            if (event == null) return;
+
+            events[operation.ordinal()] = null;
+            event.failed = true;
+            event.commit();
+        }
+
+    }
+
+    @Category("Dalwit")
+    @StackTrace(false)
+    abstract static class DalwitEvent extends Event {
+
+        @Label("Fingerprint")
+        @Description("Fingerprint of the query of the statement")
+        String fingerprint;
+
+        @Label("Depth")
+        @Description("Transaction nesting depth")
+        int depth;
+
+        @Label("Operation")
+        String operation;
+
+        @Label("Count")
+        @Description("Number of rows affected or fetched, if known")
+        long count;
+
+        @Label("Failed")
+        boolean failed;
+
+    }
+
+    @Name("com.devexed.dalwit.Prepare")
+    @Label("Prepare Statement")
+    static final class PrepareEvent extends DalwitEvent {
+    }
+
+    @Name("com.devexed.dalwit.Execute")
+    @Label("Execute Statement")
+    static final class ExecuteEvent extends DalwitEvent {
+    }
+
+    @Name("com.devexed.dalwit.Iterate")
+    @Label("Iterate Cursor")
+    static final class IterateEvent extends DalwitEvent {
+    }
+
+    @Name("com.devexed.dalwit.Commit")
+    @Label("Commit Transaction")
+    static final class CommitEvent extends DalwitEvent {
+    }
+
+    @Name("com.devexed.dalwit.Rollback")
+    @Label("Rollback Transaction")
+    static final class RollbackEvent extends DalwitEvent {
+    }
+
+    @Name("com.devexed.dalwit.Connect")
+    @Label("Open Database")
+    static final class ConnectEvent extends DalwitEvent {
+    }
+
+}
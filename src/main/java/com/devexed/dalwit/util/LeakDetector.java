@@ -0,0 +1,206 @@
+package com.devexed.dalwit.util;
+
+import java.lang.ref.PhantomReference;
+import java.lang.ref.ReferenceQueue;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Detects databases, statements and cursors which become unreachable without being closed. When enabled, every
+ * {@link AbstractCloseable} created afterwards is tracked by a phantom reference which is discarded when it is closed.
+ * References enqueued by the garbage collector therefore belong to leaked instances.</p>
+ * <p>Capturing the allocation stack trace of every instance is expensive, so only one in every
+ * <code>samplingInterval</code> instances records the site which created it. Leaks of other instances are counted by
+ * type only. Each detected leak is logged as a warning, and the totals are available from {@link #report()}.</p>
+ * <p>Leaks are detected when new instances are tracked and when a report is taken. Disabled by default, costing a
+ * single volatile read per created instance.</p>
+ */
+public final class LeakDetector {
+
+    private static final Logger logger = Logger.getLogger(LeakDetector.class.getName());
+    private static final int maxSiteFrames = 8;
+    private static final String unsampledSite = "<unsampled>";
+
+    private static volatile int samplingInterval = 0;
+
+    private static final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private static final Set<Tracker> trackers = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    private static final AtomicLong allocations = new AtomicLong();
+    private static final ConcurrentHashMap<String, LongAdder> leaksByType = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, LongAdder> leaksBySite = new ConcurrentHashMap<>();
+
+    private LeakDetector() {
+    }
+
+    /**
+     * Start tracking closeables created from now on.
+     *
+     * @param samplingInterval Capture the allocation site of one in this many instances. One captures every site.
+     */
+    public static void enable(int samplingInterval) {
+        if (samplingInterval < 1) throw new IllegalArgumentException("Sampling interval must be at least one");
+
+        LeakDetector.samplingInterval = samplingInterval;
+    }
+
+    /**
+     * Stop tracking new closeables. Instances already tracked are still reported if they leak.
+     */
+    public static void disable() {
+        samplingInterval = 0;
+    }
+
+    /**
+     * Forget all leaks detected so far.
+     */
+    public static void reset() {
+        poll();
+        leaksByType.clear();
+        leaksBySite.clear();
+    }
+
+    /**
+     * Detect leaks which have been found by the garbage collector and report all leaks detected so far.
+     *
+     * @return The leaks detected so far.
+     */
+    public static Report report() {
+        poll();
+
+        return new Report(snapshot(leaksByType), snapshot(leaksBySite), trackers.size());
+    }
+
+    /**
+     * Start tracking a closeable if tracking is enabled.
+     *
+     * @return The tracker to close when the closeable is closed, or null if tracking is disabled.
+     */
+    static Tracker track(Object closeable) {
+        int interval = samplingInterval;
+        if (interval == 0) return null;
+
+        poll();
+
+        String site = allocations.getAndIncrement() % interval == 0 ? site(new Throwable().getStackTrace()) : null;
+        Tracker tracker = new Tracker(closeable, site);
+        trackers.add(tracker);
+
+        return tracker;
+    }
+
+    private static void poll() {
+        Tracker tracker;
+
+        while ((tracker = (Tracker) queue.poll()) != null) {
+            if (!trackers.remove(tracker)) continue;
+
+            String site = tracker.site != null ? tracker.site : unsampledSite;
+            leaksByType.computeIfAbsent(tracker.type, k -> new LongAdder()).increment();
+            leaksBySite.computeIfAbsent(site, k -> new LongAdder()).increment();
+            logger.log(Level.WARNING, tracker.type + " was not closed before becoming unreachable"
+                    + (tracker.site != null ? ". Created at:\n" + tracker.site : ""));
+        }
+    }
+
+    /**
+     * Format the stack trace of an allocation, skipping the frames of the tracked closeable's constructors.
+     */
+    private static String site(StackTraceElement[] stackTrace) {
+        StringBuilder site = new StringBuilder();
+        int frames = 0;
+        boolean inConstructors = true;
+
+        for (int i = 2; i < stackTrace.length && frames < maxSiteFrames; i++) {
+            StackTraceElement element = stackTrace[i];
+            if (inConstructors && element.getMethodName().equals("<init>")) continue;
+
+            inConstructors = false;
+            site.append("\tat ").append(element).append('\n');
+            frames++;
+        }
+
+        return site.toString();
+    }
+
+    private static Map<String, Long> snapshot(ConcurrentHashMap<String, LongAdder> counts) {
+        TreeMap<String, Long> snapshot = new TreeMap<>();
+        for (Map.Entry<String, LongAdder> e : counts.entrySet()) snapshot.put(e.getKey(), e.getValue().sum());
+
+        return snapshot;
+    }
+
+    static final class Tracker extends PhantomReference<Object> {
+
+        private final String type;
+        private final String site;
+
+        private Tracker(Object referent, String site) {
+            super(referent, queue);
+            this.type = referent.getClass().getName();
+            this.site = site;
+        }
+
+        void close() {
+            trackers.remove(this);
+            clear();
+        }
+
+    }
+
+    /**
+     * The leaks detected up to some point.
+     */
+    public static final class Report {
+
+        private final Map<String, Long> byType;
+        private final Map<String, Long> bySite;
+        private final long open;
+
+        private Report(Map<String, Long> byType, Map<String, Long> bySite, long open) {
+            this.byType = byType;
+            this.bySite = bySite;
+            this.open = open;
+        }
+
+        /**
+         * @return The total number of leaked instances.
+         */
+        public long leaked() {
+            long leaked = 0;
+            for (long count : byType.values()) leaked += count;
+
+            return leaked;
+        }
+
+        /**
+         * @return The number of leaked instances by class name.
+         */
+        public Map<String, Long> byType() {
+            return byType;
+        }
+
+        /**
+         * @return The number of leaked instances by allocation stack trace. Leaks of instances whose site was not
+         * sampled are counted under <code>&lt;unsampled&gt;</code>.
+         */
+        public Map<String, Long> bySite() {
+            return bySite;
+        }
+
+        /**
+         * @return The number of tracked instances which are neither closed nor known to be leaked.
+         */
+        public long open() {
+            return open;
+        }
+
+    }
+
+}
@@ -0,0 +1,467 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.Cursor;
+import com.devexed.dalwit.DatabaseException;
+import com.devexed.dalwit.RowBatch;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>Cursor over a result read completely into memory. Materializing drains and closes the wrapped cursor, releasing
+ * its statement and connection right away, and packs each row into a fixed width record: primitive columns in as few
+ * bytes as their type needs, string columns as codes into a table holding each distinct string once and other columns
+ * as indexes into a table of their values. Nulls are kept in a bitmap at the start of each record.</p>
+ * <p>Since every record has the same width, any row is found from its index alone, so {@link #seek(int)} and
+ * {@link #previous()} take constant time on any driver and the result can be scanned as many times as needed:</p>
+ * <pre><code>
+ * try (MaterializedCursor cursor = query.on(database).materialize()) {
+ *     while (cursor.next()) sum += cursor.&lt;Long&gt;get("amount");
+ *     cursor.beforeFirst();
+ *     while (cursor.next()) share(cursor.&lt;Long&gt;get("amount"), sum);
+ * }
+ * </code></pre>
+ * <p>Records are stored on the heap, or off the heap in direct buffers to keep large results out of the way of the
+ * garbage collector. Given a memory limit, records past the limit are written to a memory mapped temporary file
+ * instead, and so are strings and byte arrays not already held in memory, so results far larger than the heap can be
+ * materialized with random access intact. Short strings recently written to the file are remembered so repeated
+ * values are written once, and strings recently read back are kept so repeated reads return the same instance. Values
+ * of other types, such as decimals and dates, are always kept on the heap. The temporary files are deleted when the
+ * cursor is closed.</p>
+ * <p>Seeking beyond the bounds of the cursor leaves it before the first or after the last row rather than closing
+ * it.</p>
+ */
+public final class MaterializedCursor extends AbstractCloseable implements Cursor {
+
+    private static final int batchSize = 256;
+
+    // Rough heap cost of a string kept in the table, beyond its characters, and of an array, beyond its bytes.
+    private static final int stringOverhead = 80;
+    private static final int arrayOverhead = 16;
+
+    // Bounds of the caches of strings in the temporary file, outside the memory limit.
+    private static final int spilledStringCacheSize = 1024;
+    private static final int spilledStringCacheLength = 256;
+
+    private enum Kind {
+        BOOLEAN(1),
+        BYTE(1),
+        SHORT(2),
+        INT(4),
+        LONG(8),
+        FLOAT(4),
+        DOUBLE(8),
+        STRING(4),
+        BYTES(4),
+        OBJECT(4);
+
+        private final int width;
+
+        Kind(int width) {
+            this.width = width;
+        }
+
+        private static Kind of(Class<?> type) {
+            if (type == Boolean.TYPE || type == Boolean.class) return BOOLEAN;
+            if (type == Byte.TYPE || type == Byte.class) return BYTE;
+            if (type == Short.TYPE || type == Short.class) return SHORT;
+            if (type == Integer.TYPE || type == Integer.class) return INT;
+            if (type == Long.TYPE || type == Long.class) return LONG;
+            if (type == Float.TYPE || type == Float.class) return FLOAT;
+            if (type == Double.TYPE || type == Double.class) return DOUBLE;
+            if (type == String.class) return STRING;
+            if (type == byte[].class) return BYTES;
+
+            return OBJECT;
+        }
+    }
+
+    private final NameTable<Integer> columns;
+    private final Kind[] kinds;
+    private final int[] offsets;
+    private final RowStore store;
+    private final boolean spillable;
+    private final int size;
+    private String[] strings;
+    private Object[] objects;
+    private Map<Long, String> spilledStrings;
+
+    private int position = -1;
+    private ByteBuffer segment = null;
+    private int offset = 0;
+
+    private MaterializedCursor(NameTable<Integer> columns, Kind[] kinds, int[] offsets, RowStore store,
+                               boolean spillable, String[] strings, Object[] objects) {
+        this.columns = columns;
+        this.kinds = kinds;
+        this.offsets = offsets;
+        this.store = store;
+        this.spillable = spillable;
+        this.size = store.size();
+        this.strings = strings;
+        this.objects = objects;
+        this.spilledStrings = spillable ? cache() : null;
+    }
+
+    /**
+     * @return Map which keeps only its most recently used entries.
+     */
+    private static <K, V> Map<K, V> cache() {
+        return new LinkedHashMap<K, V>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+                return size() > spilledStringCacheSize;
+            }
+        };
+    }
+
+    /**
+     * Materialize a cursor on the heap.
+     *
+     * @see #materialize(Cursor, Map, boolean)
+     */
+    public static MaterializedCursor materialize(Cursor cursor, Map<String, Class<?>> columns) {
+        return materialize(cursor, columns, false);
+    }
+
+    /**
+     * Read all remaining rows of a cursor into memory and close it.
+     *
+     * @param cursor  The cursor to read, which is closed even if reading fails.
+     * @param columns The types of the columns to read by name, for example {@link com.devexed.dalwit.Query#columns()}.
+     * @param direct  Whether to store the rows off the heap.
+     * @return The cursor over the read rows, positioned before the first row.
+     */
+    public static MaterializedCursor materialize(Cursor cursor, Map<String, Class<?>> columns, boolean direct) {
+        try {
+            return drain(cursor, columns, new RowStore(width(columns, false), direct), false);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Read all remaining rows of a cursor into memory up to a limit, and into temporary files beyond it, and close
+     * the cursor.
+     *
+     * @param cursor      The cursor to read, which is closed even if reading fails.
+     * @param columns     The types of the columns to read by name, for example
+     *                    {@link com.devexed.dalwit.Query#columns()}.
+     * @param direct      Whether to store the rows held in memory off the heap.
+     * @param memoryLimit The approximate number of bytes of rows and values to hold in memory.
+     * @param directory   The directory to create the temporary files in, or null for the default temporary directory.
+     * @return The cursor over the read rows, positioned before the first row.
+     */
+    public static MaterializedCursor materialize(Cursor cursor, Map<String, Class<?>> columns, boolean direct,
+                                                 long memoryLimit, Path directory) {
+        if (memoryLimit < 0) throw new DatabaseException("Memory limit must be zero or greater");
+
+        RowStore store = new RowStore(width(columns, true), direct, memoryLimit, directory);
+
+        try {
+            return drain(cursor, columns, store, true);
+        } catch (RuntimeException e) {
+            try {
+                store.close();
+            } catch (RuntimeException closeException) {
+                e.addSuppressed(closeException);
+            }
+
+            throw e;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return The width of the records of the columns. Spillable records reference strings and other values with
+     * longs, holding either the index of a value in memory or the complement of its position in the value file.
+     */
+    private static int width(Map<String, Class<?>> columns, boolean spillable) {
+        int width = (columns.size() + 7) >>> 3;
+        for (Class<?> type : columns.values()) width += width(Kind.of(type), spillable);
+
+        return width;
+    }
+
+    private static int width(Kind kind, boolean spillable) {
+        return spillable && (kind == Kind.STRING || kind == Kind.BYTES || kind == Kind.OBJECT) ? 8 : kind.width;
+    }
+
+    private static MaterializedCursor drain(Cursor cursor, Map<String, Class<?>> columnTypes, RowStore store,
+                                            boolean spillable) {
+        RowBatch batch = new RowBatch(batchSize, columnTypes);
+        int columnCount = batch.columnCount();
+        NameTable<Integer> columns = new NameTable<>(columnCount);
+        Kind[] kinds = new Kind[columnCount];
+        int[] offsets = new int[columnCount];
+
+        // The null bitmap comes first, followed by the values of the columns.
+        int width = (columnCount + 7) >>> 3;
+        int c = 0;
+
+        for (Map.Entry<String, Class<?>> e : columnTypes.entrySet()) {
+            columns.put(batch.name(c), c);
+            kinds[c] = Kind.of(e.getValue());
+            offsets[c] = width;
+            width += width(kinds[c], spillable);
+            c++;
+        }
+
+        HashMap<String, Integer> stringCodes = new HashMap<>();
+        Map<String, Long> spilledPositions = spillable ? cache() : null;
+        ArrayList<String> strings = new ArrayList<>();
+        ArrayList<Object> objects = new ArrayList<>();
+        int fetched;
+
+        do {
+            fetched = cursor.fetch(batch);
+
+            for (int row = 0; row < fetched; row++) {
+                int index = store.append();
+                ByteBuffer segment = store.segment(index);
+                int offset = store.offset(index);
+
+                for (c = 0; c < columnCount; c++) {
+                    if (batch.isNull(c, row)) {
+                        int nulls = offset + (c >>> 3);
+                        segment.put(nulls, (byte) (segment.get(nulls) | (1 << (c & 7))));
+                        continue;
+                    }
+
+                    int at = offset + offsets[c];
+
+                    switch (kinds[c]) {
+                        case BOOLEAN:
+                        case BYTE:
+                            segment.put(at, (byte) batch.ints(c)[row]);
+                            break;
+                        case SHORT:
+                            segment.putShort(at, (short) batch.ints(c)[row]);
+                            break;
+                        case INT:
+                            segment.putInt(at, batch.ints(c)[row]);
+                            break;
+                        case LONG:
+                            segment.putLong(at, batch.longs(c)[row]);
+                            break;
+                        case FLOAT:
+                            segment.putFloat(at, (float) batch.doubles(c)[row]);
+                            break;
+                        case DOUBLE:
+                            segment.putDouble(at, batch.doubles(c)[row]);
+                            break;
+                        case STRING: {
+                            String value = (String) batch.objects(c)[row];
+                            Integer code = stringCodes.get(value);
+
+                            if (code == null) {
+                                if (spillable && !store.reserve(stringOverhead + 2L * value.length())) {
+                                    Long spilled = spilledPositions.get(value);
+
+                                    if (spilled == null) {
+                                        spilled = store.appendValue(encode(value));
+                                        if (value.length() <= spilledStringCacheLength) spilledPositions.put(value, spilled);
+                                    }
+
+                                    segment.putLong(at, ~spilled);
+                                    break;
+                                }
+
+                                code = strings.size();
+                                stringCodes.put(value, code);
+                                strings.add(value);
+                            }
+
+                            if (spillable) segment.putLong(at, code);
+                            else segment.putInt(at, code);
+                            break;
+                        }
+                        case BYTES: {
+                            byte[] value = (byte[]) batch.objects(c)[row];
+
+                            if (spillable && !store.reserve(arrayOverhead + (long) value.length)) {
+                                segment.putLong(at, ~store.appendValue(value));
+                                break;
+                            }
+
+                            if (spillable) segment.putLong(at, objects.size());
+                            else segment.putInt(at, objects.size());
+                            objects.add(value);
+                            break;
+                        }
+                        default:
+                            if (spillable) segment.putLong(at, objects.size());
+                            else segment.putInt(at, objects.size());
+                            objects.add(batch.objects(c)[row]);
+                            break;
+                    }
+                }
+            }
+        } while (fetched == batchSize);
+
+        return new MaterializedCursor(columns, kinds, offsets, store, spillable, strings.toArray(new String[0]),
+                objects.toArray());
+    }
+
+    /**
+     * Encode the characters of a string as is, keeping any unpaired surrogates which UTF-8 would replace.
+     */
+    private static byte[] encode(String value) {
+        byte[] bytes = new byte[value.length() * 2];
+        ByteBuffer.wrap(bytes).asCharBuffer().put(value);
+
+        return bytes;
+    }
+
+    private static String decode(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).asCharBuffer().toString();
+    }
+
+    /**
+     * @return True if any rows were written to a temporary file rather than held in memory.
+     */
+    public boolean isSpilled() {
+        return store.isSpilled();
+    }
+
+    /**
+     * @return The number of rows of the cursor.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return The index of the current row, -1 if before the first row and {@link #size()} if after the last.
+     */
+    public int position() {
+        return position;
+    }
+
+    /**
+     * Move the cursor before the first row to scan it again.
+     */
+    public void beforeFirst() {
+        checkNotClosed();
+        move(-1);
+    }
+
+    @Override
+    public boolean seek(int rows) {
+        checkNotClosed();
+        long target = (long) position + rows;
+
+        if (target < 0) {
+            move(-1);
+            return false;
+        }
+
+        if (target >= size) {
+            move(size);
+            return false;
+        }
+
+        move((int) target);
+
+        return true;
+    }
+
+    private void move(int row) {
+        position = row;
+
+        if (row >= 0 && row < size) {
+            segment = store.segment(row);
+            offset = store.offset(row);
+        } else {
+            segment = null;
+        }
+    }
+
+    @Override
+    public boolean previous() {
+        return seek(-1);
+    }
+
+    @Override
+    public boolean next() {
+        return seek(1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Getter<T> getter(String column) {
+        Integer index = columns.get(column);
+        if (index == null) return null;
+
+        int nullByte = index >>> 3;
+        int nullBit = 1 << (index & 7);
+        int at = offsets[index];
+        Kind kind = kinds[index];
+
+        return () -> {
+            checkNotClosed();
+            if (segment == null) throw new DatabaseException("Cursor is not at a row");
+            if ((segment.get(offset + nullByte) & nullBit) != 0) return null;
+
+            switch (kind) {
+                case BOOLEAN:
+                    return (T) Boolean.valueOf(segment.get(offset + at) != 0);
+                case BYTE:
+                    return (T) Byte.valueOf(segment.get(offset + at));
+                case SHORT:
+                    return (T) Short.valueOf(segment.getShort(offset + at));
+                case INT:
+                    return (T) Integer.valueOf(segment.getInt(offset + at));
+                case LONG:
+                    return (T) Long.valueOf(segment.getLong(offset + at));
+                case FLOAT:
+                    return (T) Float.valueOf(segment.getFloat(offset + at));
+                case DOUBLE:
+                    return (T) Double.valueOf(segment.getDouble(offset + at));
+                case STRING: {
+                    if (!spillable) return (T) strings[segment.getInt(offset + at)];
+
+                    long reference = segment.getLong(offset + at);
+
+                    return (T) (reference >= 0 ? strings[(int) reference] : spilledString(~reference));
+                }
+                case BYTES: {
+                    if (!spillable) return (T) objects[segment.getInt(offset + at)];
+
+                    long reference = segment.getLong(offset + at);
+
+                    return (T) (reference >= 0 ? objects[(int) reference] : store.value(~reference));
+                }
+                default:
+                    return (T) objects[spillable ? (int) segment.getLong(offset + at) : segment.getInt(offset + at)];
+            }
+        };
+    }
+
+    private String spilledString(long position) {
+        String value = spilledStrings.get(position);
+
+        if (value == null) {
+            value = decode(store.value(position));
+            if (value.length() <= spilledStringCacheLength) spilledStrings.put(position, value);
+        }
+
+        return value;
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        segment = null;
+        strings = null;
+        objects = null;
+        spilledStrings = null;
+        store.close();
+    }
+
+}
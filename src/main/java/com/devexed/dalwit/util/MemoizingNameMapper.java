@@ -0,0 +1,51 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.ColumnNameMapper;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+
+/**
+ * <p>Name mapper which remembers the names produced by another mapper, so that mapping the same column or field name
+ * again costs a single lookup and allocates nothing. Usable both as a {@link ColumnNameMapper} and an
+ * {@link ObjectColumnMapper}.</p>
+ * <p>The number of remembered names is bounded. Once the bound is reached further names are mapped without being
+ * remembered. Safe to use from multiple threads.</p>
+ */
+public final class MemoizingNameMapper implements ColumnNameMapper, ObjectColumnMapper {
+
+    private final UnaryOperator<String> mapper;
+    private final int maxNames;
+    private final ConcurrentHashMap<String, String> names = new ConcurrentHashMap<>();
+
+    /**
+     * Create a memoizing mapper remembering at most 1024 names.
+     *
+     * @param mapper The mapper to remember the names of. Must always map a name to the same name.
+     */
+    public MemoizingNameMapper(UnaryOperator<String> mapper) {
+        this(mapper, 1024);
+    }
+
+    /**
+     * @param mapper   The mapper to remember the names of. Must always map a name to the same name.
+     * @param maxNames The maximum number of names to remember.
+     */
+    public MemoizingNameMapper(UnaryOperator<String> mapper, int maxNames) {
+        this.mapper = mapper;
+        this.maxNames = maxNames;
+    }
+
+    @Override
+    public String apply(String name) {
+        String mapped = names.get(name);
+
+        if (mapped == null) {
+            mapped = mapper.apply(name);
+            if (names.size() < maxNames) names.putIfAbsent(name, mapped);
+        }
+
+        return mapped;
+    }
+
+}
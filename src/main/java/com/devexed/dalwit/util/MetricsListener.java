@@ -0,0 +1,185 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.DatabaseListener;
+import com.devexed.dalwit.Query;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * <p>Listener which keeps in-memory latency histograms of every operation, keyed by the fingerprint of the query of
+ * the statement performing it (see {@link Query#fingerprint()}). Transaction operations are kept under the key
+ * {@value #transactionKey} and connection operations under {@value #connectionKey}.</p>
+ * <p>The number of distinct fingerprints is bounded. Once the bound is reached operations of new fingerprints are
+ * kept under the key {@value #otherKey}.</p>
+ */
+public final class MetricsListener implements DatabaseListener {
+
+    public static final String transactionKey = "<transaction>";
+    public static final String connectionKey = "<connection>";
+    public static final String otherKey = "<other>";
+
+    private static final Operation[] operations = Operation.values();
+
+    private final int maxFingerprints;
+    private final ConcurrentHashMap<String, Metrics> metrics = new ConcurrentHashMap<>();
+
+    /**
+     * Create a metrics listener keeping at most 1000 distinct fingerprints.
+     */
+    public MetricsListener() {
+        this(1000);
+    }
+
+    /**
+     * @param maxFingerprints The maximum number of distinct fingerprints to keep metrics for.
+     */
+    public MetricsListener(int maxFingerprints) {
+        this.maxFingerprints = maxFingerprints;
+    }
+
+    @Override
+    public Probe statement(Query query, int depth) {
+        return new TimingProbe(metrics(query.fingerprint()));
+    }
+
+    @Override
+    public Probe transaction(int depth) {
+        return new TimingProbe(metrics(transactionKey));
+    }
+
+    @Override
+    public Probe connection() {
+        return new TimingProbe(metrics(connectionKey));
+    }
+
+    private Metrics metrics(String key) {
+        Metrics keyMetrics = metrics.get(key);
+
+        if (keyMetrics != null) return keyMetrics;
+
+        if (metrics.size() >= maxFingerprints) key = otherKey;
+
+        return metrics.computeIfAbsent(key, k -> new Metrics());
+    }
+
+    /**
+     * @return Snapshots of the latency histograms in nanoseconds of all operations performed so far, by fingerprint.
+     */
+    public Map<String, Map<Operation, Histogram.Snapshot>> snapshot() {
+        TreeMap<String, Map<Operation, Histogram.Snapshot>> snapshot = new TreeMap<>();
+
+        for (Map.Entry<String, Metrics> e : metrics.entrySet()) {
+            EnumMap<Operation, Histogram.Snapshot> operationSnapshots = new EnumMap<>(Operation.class);
+
+            for (Operation operation : operations) {
+                Histogram histogram = e.getValue().histograms.get(operation.ordinal());
+                if (histogram != null) operationSnapshots.put(operation, histogram.snapshot());
+            }
+
+            snapshot.put(e.getKey(), operationSnapshots);
+        }
+
+        return snapshot;
+    }
+
+    /**
+     * @return The number of failed operations so far, by fingerprint.
+     */
+    public Map<String, Map<Operation, Long>> failures() {
+        TreeMap<String, Map<Operation, Long>> failures = new TreeMap<>();
+
+        for (Map.Entry<String, Metrics> e : metrics.entrySet()) {
+            EnumMap<Operation, Long> operationFailures = new EnumMap<>(Operation.class);
+
+            for (Operation operation : operations) {
+                long count = e.getValue().failures.get(operation.ordinal());
+                if (count > 0) operationFailures.put(operation, count);
+            }
+
+            failures.put(e.getKey(), operationFailures);
+        }
+
+        return failures;
+    }
+
+    /**
+     * @return A human readable table of the count, failures, median, 99th percentile and maximum latency in
+     * microseconds of all operations performed so far, by fingerprint.
+     */
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        Map<String, Map<Operation, Long>> failures = failures();
+        builder.append("fingerprint\toperation\tcount\tfailures\tp50 us\tp99 us\tmax us\n");
+
+        for (Map.Entry<String, Map<Operation, Histogram.Snapshot>> e : snapshot().entrySet()) {
+            for (Map.Entry<Operation, Histogram.Snapshot> o : e.getValue().entrySet()) {
+                Histogram.Snapshot snapshot = o.getValue();
+                Long operationFailures = failures.getOrDefault(e.getKey(), Collections.emptyMap()).get(o.getKey());
+
+                builder.append(e.getKey()).append('\t')
+                        .append(o.getKey()).append('\t')
+                        .append(snapshot.count()).append('\t')
+                        .append(operationFailures != null ? operationFailures : 0).append('\t')
+                        .append(TimeUnit.NANOSECONDS.toMicros(snapshot.percentile(50))).append('\t')
+                        .append(TimeUnit.NANOSECONDS.toMicros(snapshot.percentile(99))).append('\t')
+                        .append(TimeUnit.NANOSECONDS.toMicros(snapshot.max())).append('\n');
+            }
+        }
+
+        return builder.toString();
+    }
+
+    private static final class Metrics {
+
+        private final AtomicReferenceArray<Histogram> histograms = new AtomicReferenceArray<>(operations.length);
+        private final AtomicLongArray failures = new AtomicLongArray(operations.length);
+
+        private void record(Operation operation, long nanos) {
+            int index = operation.ordinal();
+            Histogram histogram = histograms.get(index);
+
+            // Histograms are created on demand since most fingerprints only see a few of the operations.
+            if (histogram == null) {
+                histograms.compareAndSet(index, null, new Histogram());
+                histogram = histograms.get(index);
+            }
+
+            histogram.record(nanos);
+        }
+
+    }
+
+    private static final class TimingProbe implements Probe {
+
+        private final Metrics metrics;
+        private final long[] starts = new long[operations.length];
+
+        private TimingProbe(Metrics metrics) {
+            this.metrics = metrics;
+        }
+
+        @Override
+        public void begin(Operation operation) {
+            starts[operation.ordinal()] = System.nanoTime();
+        }
+
+        @Override
+        public void end(Operation operation, long count) {
+            metrics.record(operation, System.nanoTime() - starts[operation.ordinal()]);
+        }
+
+        @Override
+        public void fail(Operation operation, RuntimeException exception) {
+            metrics.failures.incrementAndGet(operation.ordinal());
+        }
+
+    }
+
+}
@@ -0,0 +1,149 @@
+package com.devexed.dalwit.util;
+
+import java.util.Locale;
+
+/**
+ * <p>Table of values keyed by case insensitive names, for looking up parameters and columns by the names users pass
+ * in. Names are stored in their canonical lower case form along with their precomputed hashes. Looking up a name
+ * hashes and compares it case insensitively in place, so no lower cased copy is ever allocated, and names identical to
+ * the stored canonical name, such as interned string literals, match without comparing characters.</p>
+ * <p>Tables are filled once and then only read. Reading from multiple threads is safe once filled.</p>
+ *
+ * @param <V> The type of the values.
+ */
+public final class NameTable<V> {
+
+    private String[] names;
+    private int[] hashes;
+    private Object[] values;
+    private int size = 0;
+
+    public NameTable() {
+        this(4);
+    }
+
+    /**
+     * @param expectedSize The number of names expected to be put in the table.
+     */
+    public NameTable(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        names = new String[capacity];
+        hashes = new int[capacity];
+        values = new Object[capacity];
+    }
+
+    /**
+     * @param name The name.
+     * @return The canonical form of the name, lower cased and interned.
+     */
+    public static String canonical(String name) {
+        return name.toLowerCase(Locale.ROOT).intern();
+    }
+
+    /**
+     * @param name The name.
+     * @return The hash of the name, equal for names which only differ in case.
+     */
+    public static int hash(String name) {
+        int hash = 0;
+
+        for (int i = 0, l = name.length(); i < l; i++) {
+            hash = 31 * hash + Character.toLowerCase(Character.toUpperCase(name.charAt(i)));
+        }
+
+        // Spread the high bits since the table is indexed by the low bits.
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * @param name The name to find, in any case.
+     * @return The value of the name, or null if the table does not contain the name.
+     */
+    @SuppressWarnings("unchecked")
+    public V get(String name) {
+        int index = indexOf(name, hash(name));
+
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    /**
+     * @param name The name to find, in any case.
+     * @return The canonical name stored in the table, or null if the table does not contain the name.
+     */
+    public String name(String name) {
+        int index = indexOf(name, hash(name));
+
+        return index >= 0 ? names[index] : null;
+    }
+
+    /**
+     * Put a value in the table. Names in canonical form are stored as is, other names are lower cased.
+     *
+     * @param name  The name, in any case.
+     * @param value The value.
+     * @return The previous value of the name, or null if the table did not contain the name.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(String name, V value) {
+        int hash = hash(name);
+        int index = indexOf(name, hash);
+
+        if (index >= 0) {
+            V previous = (V) values[index];
+            values[index] = value;
+
+            return previous;
+        }
+
+        if ((size + 1) * 2 > names.length) resize();
+
+        insert(name.toLowerCase(Locale.ROOT), hash, value);
+        size++;
+
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int indexOf(String name, int hash) {
+        int mask = names.length - 1;
+
+        for (int i = hash & mask; ; i = (i + 1) & mask) {
+            String n = names[i];
+
+            if (n == null) return -1;
+            if (n == name || (hashes[i] == hash && n.equalsIgnoreCase(name))) return i;
+        }
+    }
+
+    private void insert(String name, int hash, Object value) {
+        int mask = names.length - 1;
+        int i = hash & mask;
+
+        while (names[i] != null) i = (i + 1) & mask;
+
+        names[i] = name;
+        hashes[i] = hash;
+        values[i] = value;
+    }
+
+    private void resize() {
+        String[] oldNames = names;
+        int[] oldHashes = hashes;
+        Object[] oldValues = values;
+        names = new String[oldNames.length * 2];
+        hashes = new int[oldNames.length * 2];
+        values = new Object[oldNames.length * 2];
+
+        for (int i = 0; i < oldNames.length; i++) {
+            if (oldNames[i] != null) insert(oldNames[i], oldHashes[i], oldValues[i]);
+        }
+    }
+
+}
@@ -41,10 +41,11 @@ public final class ObjectDescriptor<T> {
 
             if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers)) continue;
 
-            columns.put(mapper.apply(field.getName()).toLowerCase(), field.getType());
-            parameters.put(mapper.apply(field.getName()).toLowerCase(), field.getType());
-            getters.put(mapper.apply(field.getName()).toLowerCase(), field::get);
-            if (!Modifier.isFinal(modifiers)) setters.put(mapper.apply(field.getName()).toLowerCase(), field::set);
+            String column = NameTable.canonical(mapper.apply(field.getName()));
+            columns.put(column, field.getType());
+            parameters.put(column, field.getType());
+            getters.put(column, field::get);
+            if (!Modifier.isFinal(modifiers)) setters.put(column, field::set);
         }
 
         // Find public setters and getters
@@ -54,7 +55,7 @@ public final class ObjectDescriptor<T> {
 
             if (!Modifier.isPublic(modifiers) || Modifier.isStatic(modifiers) || methodName.length() <= 3) continue;
 
-            String property = methodName.substring(3).toLowerCase();
+            String property = NameTable.canonical(methodName.substring(3));
             Class<?> propertyType;
 
             if (methodName.startsWith("set") && method.getReturnType().equals(Void.TYPE) && method.getParameterTypes().length == 1) {
@@ -0,0 +1,242 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.Cursor;
+import com.devexed.dalwit.DatabaseException;
+
+import java.util.Collection;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * <p>Cursor which reads ahead of its consumer on a background thread. Up to a fixed number of rows are fetched from
+ * the wrapped cursor, and the values of their columns read, into a ring buffer while the consumer processes earlier
+ * rows. A consumer doing heavy work per row over a slow query then takes about as long as the slower of the two rather
+ * than their sum. For example, to iterate objects:</p>
+ * <pre><code>
+ * try (ObjectIterable&lt;Person&gt; people = descriptor.iterate(
+ *         new PrefetchingCursor(query.on(database).query(), descriptor.columns().keySet(), 256))) {
+ *     for (Person person : people) process(person);
+ * }
+ * </code></pre>
+ * <p>The wrapped cursor is only used by the background thread until this cursor is closed, after which it is closed
+ * by the closing thread. Closing waits for a fetch in progress to finish. Only the columns given when the cursor is
+ * created can be read, and the cursor can only move forward.</p>
+ */
+public final class PrefetchingCursor extends AbstractCloseable implements Cursor {
+
+    private final Cursor cursor;
+    private final Getter<?>[] sources;
+    private final NameTable<Integer> columns;
+    private final Object[][] rows;
+    private final int capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    // Guarded by lock. Filled rows are the count slots starting at head. The slot before head is the current row of
+    // the consumer, which the background thread never writes to.
+    private int head = 0;
+    private int count = 0;
+    private boolean end = false;
+    private boolean stopped = false;
+    private RuntimeException failure = null;
+
+    private Object[] current = null;
+
+    /**
+     * Create a cursor prefetching on a new daemon thread.
+     *
+     * @param cursor   The cursor to read ahead of.
+     * @param columns  The columns to read.
+     * @param capacity The maximum number of rows to read ahead.
+     */
+    public PrefetchingCursor(Cursor cursor, Collection<String> columns, int capacity) {
+        this(cursor, columns, capacity, runnable -> {
+            Thread thread = new Thread(runnable, "dalwit-prefetch");
+            thread.setDaemon(true);
+            thread.start();
+        });
+    }
+
+    /**
+     * @param cursor   The cursor to read ahead of.
+     * @param columns  The columns to read.
+     * @param capacity The maximum number of rows to read ahead.
+     * @param executor The executor to run the background fetching on, occupying one of its threads until the cursor
+     *                 is exhausted or closed.
+     */
+    public PrefetchingCursor(Cursor cursor, Collection<String> columns, int capacity, Executor executor) {
+        if (capacity <= 0) {
+            discardTracker();
+            throw new DatabaseException("Prefetch capacity must be one or greater");
+        }
+
+        this.cursor = cursor;
+        this.capacity = capacity;
+        sources = new Getter<?>[columns.size()];
+        this.columns = new NameTable<>(columns.size());
+        // One slot more than the capacity holds the consumer's current row.
+        rows = new Object[capacity + 1][sources.length];
+        int i = 0;
+
+        try {
+            for (String column : columns) {
+                Getter<?> source = cursor.getter(column);
+                if (source == null) throw new DatabaseException("No column " + column + " in cursor");
+
+                sources[i] = source;
+                this.columns.put(column, i);
+                i++;
+            }
+
+            executor.execute(this::fetch);
+        } catch (RuntimeException e) {
+            discardTracker();
+            throw e;
+        }
+    }
+
+    private void fetch() {
+        try {
+            while (true) {
+                int slot;
+                lock.lock();
+
+                try {
+                    while (count == capacity && !stopped) notFull.await();
+                    if (stopped) return;
+
+                    slot = (head + count) % rows.length;
+                } finally {
+                    lock.unlock();
+                }
+
+                // Fetch and read outside the lock so the consumer can keep reading buffered rows meanwhile.
+                boolean hasRow = cursor.next();
+
+                if (hasRow) {
+                    Object[] row = rows[slot];
+                    for (int i = 0; i < sources.length; i++) row[i] = sources[i].get();
+                }
+
+                lock.lock();
+
+                try {
+                    if (hasRow) count++;
+                    else end = true;
+
+                    notEmpty.signal();
+                } finally {
+                    lock.unlock();
+                }
+
+                if (!hasRow) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            fail(new DatabaseException("Prefetching was interrupted", e));
+        } catch (RuntimeException e) {
+            fail(e);
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private void fail(RuntimeException exception) {
+        lock.lock();
+
+        try {
+            failure = exception;
+            end = true;
+            notEmpty.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean next() {
+        checkNotClosed();
+        lock.lock();
+
+        try {
+            while (count == 0 && !end) notEmpty.await();
+
+            if (count == 0) {
+                current = null;
+                if (failure != null) throw failure;
+
+                return false;
+            }
+
+            current = rows[head];
+            head = (head + 1) % rows.length;
+            count--;
+            notFull.signal();
+
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for rows", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean seek(int rows) {
+        if (rows < 0) throw new DatabaseException("Prefetching cursors can only move forward");
+
+        for (int i = 0; i < rows; i++) {
+            if (!next()) return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public boolean previous() {
+        throw new DatabaseException("Prefetching cursors can only move forward");
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> Getter<T> getter(String column) {
+        Integer index = columns.get(column);
+        if (index == null) return null;
+
+        int i = index;
+
+        return () -> {
+            if (current == null) throw new DatabaseException("Cursor is not at a row");
+
+            return (T) current[i];
+        };
+    }
+
+    @Override
+    public void close() {
+        super.close();
+        lock.lock();
+
+        try {
+            stopped = true;
+            notFull.signal();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException("Interrupted while waiting for prefetching to stop", e);
+        }
+
+        cursor.close();
+    }
+
+}
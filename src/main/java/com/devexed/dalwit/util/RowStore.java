@@ -0,0 +1,280 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.DatabaseException;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+
+/**
+ * <p>Growable store of fixed width rows addressed by index. Rows are packed into byte buffer segments of up to 16 MiB,
+ * none of which a row straddles, so any row is found in constant time from its index alone. The last segment starts
+ * small and doubles as rows are appended so small results stay small.</p>
+ * <p>Once the segments and reserved memory would pass the memory limit, further segments are mapped from a temporary
+ * file, and the partially filled segment is moved there too, so the store holds at most about the limit in memory
+ * however many rows are appended. Variable length values can be appended to a second temporary file to keep them out
+ * of memory as well. Both files are deleted when the store is closed.</p>
+ */
+final class RowStore {
+
+    private static final int segmentBytes = 1 << 24;
+    private static final int initialRows = 64;
+    private static final int valueBufferBytes = 1 << 16;
+
+    private final int rowWidth;
+    private final int rowsPerSegment;
+    private final boolean direct;
+    private final long memoryLimit;
+    private final Path directory;
+    private final ArrayList<ByteBuffer> segments = new ArrayList<>();
+    private int size = 0;
+    private long memory = 0;
+
+    private FileChannel rowFile = null;
+    private long rowFileSegments = 0;
+    private FileChannel valueFile = null;
+    private ByteBuffer valueBuffer = null;
+    private long valueEnd = 0;
+    private long valueFlushed = 0;
+
+    /**
+     * Create a store held in memory.
+     *
+     * @param rowWidth The width of each row in bytes.
+     * @param direct   Whether to allocate the segments off the heap.
+     */
+    RowStore(int rowWidth, boolean direct) {
+        this(rowWidth, direct, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param rowWidth    The width of each row in bytes.
+     * @param direct      Whether to allocate the in memory segments off the heap.
+     * @param memoryLimit The number of bytes to hold in memory before spilling to temporary files.
+     * @param directory   The directory of the temporary files, or null for the default temporary directory.
+     */
+    RowStore(int rowWidth, boolean direct, long memoryLimit, Path directory) {
+        this.rowWidth = Math.max(1, rowWidth);
+        this.rowsPerSegment = Math.max(1, segmentBytes / this.rowWidth);
+        this.direct = direct;
+        this.memoryLimit = memoryLimit;
+        this.directory = directory;
+    }
+
+    /**
+     * Append a zeroed row.
+     *
+     * @return The index of the row.
+     */
+    int append() {
+        if (size == Integer.MAX_VALUE) throw new DatabaseException("Too many rows to store");
+
+        int segment = size / rowsPerSegment;
+        int rows = size % rowsPerSegment;
+
+        if (segment == segments.size()) {
+            segments.add(allocate(Math.min(initialRows, rowsPerSegment)));
+        } else if ((rows + 1) * rowWidth > segments.get(segment).capacity()) {
+            // Only in memory segments grow, file segments are mapped at full size.
+            ByteBuffer previous = segments.get(segment).duplicate();
+            memory -= previous.capacity();
+            ByteBuffer grown = allocate(Math.min(rows * 2, rowsPerSegment));
+            // Buffer methods are called through Buffer since ByteBuffer only overrides them from Java 9.
+            ((Buffer) previous).clear();
+            grown.put(previous);
+            segments.set(segment, grown);
+        }
+
+        return size++;
+    }
+
+    private ByteBuffer allocate(int rows) {
+        int bytes = rows * rowWidth;
+
+        // Spilled stores map every new segment at full size from the file rather than growing it.
+        if (rowFile != null || !reserve(bytes)) return map();
+
+        return (direct ? ByteBuffer.allocateDirect(bytes) : ByteBuffer.allocate(bytes)).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer map() {
+        try {
+            if (rowFile == null) rowFile = open("rows");
+
+            long bytes = (long) rowsPerSegment * rowWidth;
+            ByteBuffer segment = rowFile.map(FileChannel.MapMode.READ_WRITE, rowFileSegments * bytes, bytes);
+            rowFileSegments++;
+
+            return segment.order(ByteOrder.nativeOrder());
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to map temporary row file", e);
+        }
+    }
+
+    private FileChannel open(String kind) throws IOException {
+        Path file = directory != null
+                ? Files.createTempFile(directory, "dalwit-", "." + kind)
+                : Files.createTempFile("dalwit-", "." + kind);
+
+        try {
+            return FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                    StandardOpenOption.DELETE_ON_CLOSE);
+        } catch (IOException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    /**
+     * Account for memory held on behalf of the store.
+     *
+     * @param bytes The number of bytes to hold.
+     * @return True if the bytes fit in the memory limit and were reserved, false if they must be spilled instead.
+     */
+    boolean reserve(long bytes) {
+        if (memory + bytes > memoryLimit) return false;
+
+        memory += bytes;
+
+        return true;
+    }
+
+    /**
+     * @return True if any rows are held in the temporary file.
+     */
+    boolean isSpilled() {
+        return rowFile != null;
+    }
+
+    /**
+     * @return The number of rows stored.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param row The index of the row.
+     * @return The segment holding the row, to read from at {@link #offset(int)} with the absolute get methods.
+     */
+    ByteBuffer segment(int row) {
+        return segments.get(row / rowsPerSegment);
+    }
+
+    /**
+     * @param row The index of the row.
+     * @return The offset of the row within its segment.
+     */
+    int offset(int row) {
+        return (row % rowsPerSegment) * rowWidth;
+    }
+
+    /**
+     * Append a variable length value to the temporary value file.
+     *
+     * @param value The bytes of the value.
+     * @return The position to read the value back from with {@link #value(long)}.
+     */
+    long appendValue(byte[] value) {
+        try {
+            if (valueFile == null) {
+                valueFile = open("values");
+                valueBuffer = ByteBuffer.allocate(valueBufferBytes);
+            }
+
+            long position = valueEnd;
+            if (valueBuffer.remaining() < 4 + value.length) flushValues();
+
+            if (valueBuffer.remaining() < 4 + value.length) {
+                ByteBuffer entry = ByteBuffer.allocate(4 + value.length);
+                entry.putInt(value.length).put(value);
+                ((Buffer) entry).flip();
+                write(entry, valueFlushed);
+                valueFlushed += 4 + value.length;
+            } else {
+                valueBuffer.putInt(value.length).put(value);
+            }
+
+            valueEnd += 4 + value.length;
+
+            return position;
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to write temporary value file", e);
+        }
+    }
+
+    /**
+     * @param position The position of the value returned by {@link #appendValue(byte[])}.
+     * @return The bytes of the value.
+     */
+    byte[] value(long position) {
+        try {
+            if (position >= valueFlushed) flushValues();
+
+            ByteBuffer length = ByteBuffer.allocate(4);
+            read(length, position);
+            ByteBuffer value = ByteBuffer.allocate(length.getInt(0));
+            read(value, position + 4);
+
+            return value.array();
+        } catch (IOException e) {
+            throw new DatabaseException("Failed to read temporary value file", e);
+        }
+    }
+
+    private void flushValues() throws IOException {
+        ((Buffer) valueBuffer).flip();
+        write(valueBuffer, valueFlushed);
+        valueFlushed = valueEnd;
+        ((Buffer) valueBuffer).clear();
+    }
+
+    private void write(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += valueFile.write(buffer, position);
+    }
+
+    private void read(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = valueFile.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of temporary value file");
+
+            position += read;
+        }
+    }
+
+    /**
+     * Release the segments and delete the temporary files.
+     */
+    void close() {
+        segments.clear();
+        size = 0;
+        memory = 0;
+        valueBuffer = null;
+        IOException exception = null;
+
+        // Mapped segments stay valid until collected, but the closed channels delete their files right away on most
+        // platforms.
+        for (FileChannel channel : new FileChannel[]{rowFile, valueFile}) {
+            if (channel == null) continue;
+
+            try {
+                channel.close();
+            } catch (IOException e) {
+                if (exception == null) exception = e;
+                else exception.addSuppressed(e);
+            }
+        }
+
+        rowFile = null;
+        valueFile = null;
+
+        if (exception != null) throw new DatabaseException("Failed to delete temporary files", exception);
+    }
+
+}
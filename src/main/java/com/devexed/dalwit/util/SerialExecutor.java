@@ -0,0 +1,58 @@
+package com.devexed.dalwit.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Executor running tasks one at a time in submission order on an underlying executor. Tasks never run concurrently and
+ * each task happens before the next, so state such as a JDBC connection is confined to one thread at a time even when
+ * the underlying executor has many.
+ */
+final class SerialExecutor implements Executor {
+
+    private final Executor executor;
+    private final ArrayDeque<Runnable> tasks = new ArrayDeque<>();
+    private boolean running = false;
+
+    SerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized void execute(Runnable task) {
+        tasks.add(task);
+        if (running) return;
+
+        running = true;
+
+        try {
+            executor.execute(this::drain);
+        } catch (RuntimeException e) {
+            tasks.removeLast();
+            running = false;
+            throw e;
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Runnable task;
+
+            synchronized (this) {
+                task = tasks.poll();
+
+                if (task == null) {
+                    running = false;
+                    return;
+                }
+            }
+
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                // Tasks report their own failures, for example by completing a future exceptionally.
+            }
+        }
+    }
+
+}
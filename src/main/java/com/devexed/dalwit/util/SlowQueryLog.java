@@ -0,0 +1,290 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.DatabaseListener;
+import com.devexed.dalwit.Query;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Listener which logs statements taking longer than a threshold to execute, along with their bound parameters and
+ * row counts. The time of a query includes executing it and fetching its rows, but not the time spent by the caller
+ * between fetching rows.</p>
+ * <p>If an {@link Explainer} is provided, the plan of each slow query is captured once per query fingerprint and
+ * included in the logged entries. Plans are captured on a background thread so the slow statement is not delayed
+ * further, and entries logged before the plan of their query has been captured have no plan.</p>
+ * <p>The number of captured plans is bounded. Once the bound is reached the plans of new fingerprints are not
+ * captured. Captures which fail, such as those of statements the database can not explain, are logged at the fine
+ * level and discarded, so the plan is captured again when its query is next slow.</p>
+ */
+public final class SlowQueryLog implements DatabaseListener {
+
+    private static final Logger logger = Logger.getLogger(SlowQueryLog.class.getName());
+
+    private final long thresholdNanos;
+    private final Redactor redactor;
+    private final Explainer explainer;
+    private final Consumer<Entry> sink;
+    private final int maxPlans;
+    private final ConcurrentHashMap<String, Plan> plans = new ConcurrentHashMap<>();
+
+    /**
+     * Create a slow query log which logs to {@link java.util.logging} without redacting parameters or capturing
+     * plans.
+     *
+     * @param threshold The execution time above which statements are logged.
+     * @param unit      The unit of the threshold.
+     */
+    public SlowQueryLog(long threshold, TimeUnit unit) {
+        this(threshold, unit, (parameter, value) -> value, null, entry -> logger.log(Level.WARNING, entry.toString()));
+    }
+
+    /**
+     * Create a slow query log capturing the plans of at most 1000 distinct fingerprints.
+     *
+     * @param threshold The execution time above which statements are logged.
+     * @param unit      The unit of the threshold.
+     * @param redactor  Redacts bound parameter values before they are logged.
+     * @param explainer Captures the plans of slow queries on a background thread, or null to not capture plans.
+     * @param sink      Receives the logged entries.
+     */
+    public SlowQueryLog(long threshold, TimeUnit unit, Redactor redactor, Explainer explainer, Consumer<Entry> sink) {
+        this(threshold, unit, redactor, explainer, 1000, sink);
+    }
+
+    /**
+     * Create a slow query log.
+     *
+     * @param threshold The execution time above which statements are logged.
+     * @param unit      The unit of the threshold.
+     * @param redactor  Redacts bound parameter values before they are logged.
+     * @param explainer Captures the plans of slow queries on a background thread, or null to not capture plans.
+     * @param maxPlans  The maximum number of distinct fingerprints to capture plans for.
+     * @param sink      Receives the logged entries.
+     */
+    public SlowQueryLog(long threshold, TimeUnit unit, Redactor redactor, Explainer explainer, int maxPlans,
+                        Consumer<Entry> sink) {
+        this.thresholdNanos = unit.toNanos(threshold);
+        this.redactor = redactor;
+        this.explainer = explainer;
+        this.maxPlans = maxPlans;
+        this.sink = sink;
+    }
+
+    @Override
+    public Probe statement(Query query, int depth) {
+        return new SlowQueryProbe(query);
+    }
+
+    private void log(Query query, Map<String, Object> parameters, long rows, long nanos) {
+        LinkedHashMap<String, Object> redactedParameters = new LinkedHashMap<>();
+
+        for (Map.Entry<String, Object> e : parameters.entrySet()) {
+            redactedParameters.put(e.getKey(), redactor.redact(e.getKey(), e.getValue()));
+        }
+
+        sink.accept(new Entry(query, Collections.unmodifiableMap(redactedParameters), rows, nanos,
+                plan(query, parameters)));
+    }
+
+    /**
+     * @return The captured plan of the query, or null if it is not captured yet, starting its capture if needed.
+     */
+    private String plan(Query query, Map<String, Object> parameters) {
+        if (explainer == null) return null;
+
+        String fingerprint = query.fingerprint();
+        Plan captured = plans.get(fingerprint);
+        if (captured != null) return captured.text;
+
+        if (plans.size() >= maxPlans) return null;
+
+        Plan plan = new Plan();
+        captured = plans.putIfAbsent(fingerprint, plan);
+        if (captured != null) return captured.text;
+
+        // The probe reuses its parameter map for later executions.
+        HashMap<String, Object> explainedParameters = new HashMap<>(parameters);
+
+        PlanCapture.executor.execute(() -> {
+            try {
+                plan.text = explainer.explain(query, explainedParameters);
+            } catch (RuntimeException e) {
+                plans.remove(fingerprint, plan);
+                logger.log(Level.FINE, "Failed to capture plan of query: " + query.sql(), e);
+            }
+        });
+
+        return null;
+    }
+
+    /**
+     * Redacts bound parameter values before they are logged, for example to hide personal information.
+     */
+    public interface Redactor {
+
+        /**
+         * @param parameter The name of the parameter.
+         * @param value     The bound value.
+         * @return The value to log.
+         */
+        Object redact(String parameter, Object value);
+
+    }
+
+    /**
+     * Captures the plan of a query.
+     */
+    public interface Explainer {
+
+        /**
+         * @param query      The query to explain.
+         * @param parameters The values bound to the query parameters when it was slow.
+         * @return A human readable plan of the query.
+         */
+        String explain(Query query, Map<String, Object> parameters);
+
+    }
+
+    /**
+     * A logged slow statement.
+     */
+    public static final class Entry {
+
+        private final Query query;
+        private final Map<String, Object> parameters;
+        private final long rows;
+        private final long nanos;
+        private final String plan;
+
+        private Entry(Query query, Map<String, Object> parameters, long rows, long nanos, String plan) {
+            this.query = query;
+            this.parameters = parameters;
+            this.rows = rows;
+            this.nanos = nanos;
+            this.plan = plan;
+        }
+
+        public Query query() {
+            return query;
+        }
+
+        /**
+         * @return The redacted parameter values bound when the statement was executed.
+         */
+        public Map<String, Object> parameters() {
+            return parameters;
+        }
+
+        /**
+         * @return The number of rows fetched by a query or affected by an update, or -1 if unknown.
+         */
+        public long rows() {
+            return rows;
+        }
+
+        public long nanos() {
+            return nanos;
+        }
+
+        /**
+         * @return The plan of the query, or null if it was not captured, or not captured yet when the entry was logged.
+         */
+        public String plan() {
+            return plan;
+        }
+
+        @Override
+        public String toString() {
+            return "Slow query (" + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, " + rows + " rows): " + query.sql()
+                    + "\nParameters: " + parameters
+                    + (plan != null ? "\nPlan:\n" + plan : "");
+        }
+
+    }
+
+    /**
+     * The plan of a query fingerprint, without text until it has been captured.
+     */
+    private static final class Plan {
+
+        private volatile String text = null;
+
+    }
+
+    /**
+     * Daemon thread capturing plans, started when first used.
+     */
+    private static final class PlanCapture {
+
+        private static final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dalwit-slow-query-explain");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+    }
+
+    private final class SlowQueryProbe implements Probe {
+
+        private final Query query;
+        private final HashMap<String, Object> parameters = new HashMap<>();
+        private long start;
+        private long fetchStart;
+        private long queryNanos;
+
+        private SlowQueryProbe(Query query) {
+            this.query = query;
+        }
+
+        @Override
+        public void bound(String parameter, Object value) {
+            parameters.put(parameter, value);
+        }
+
+        @Override
+        public void begin(Operation operation) {
+            switch (operation) {
+                case QUERY:
+                case EXECUTE:
+                    start = System.nanoTime();
+                    break;
+                case FETCH:
+                    fetchStart = System.nanoTime();
+                    break;
+            }
+        }
+
+        @Override
+        public void end(Operation operation, long count) {
+            switch (operation) {
+                case QUERY:
+                    queryNanos = System.nanoTime() - start;
+                    break;
+                case FETCH:
+                    queryNanos += System.nanoTime() - fetchStart;
+                    break;
+                case ITERATE:
+                    if (queryNanos > thresholdNanos) log(query, parameters, count, queryNanos);
+                    queryNanos = 0;
+                    break;
+                case EXECUTE:
+                    long executeNanos = System.nanoTime() - start;
+                    if (executeNanos > thresholdNanos) log(query, parameters, count, executeNanos);
+                    break;
+            }
+        }
+
+    }
+
+}
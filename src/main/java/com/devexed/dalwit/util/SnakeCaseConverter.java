@@ -1,12 +1,33 @@
 package com.devexed.dalwit.util;
 
+/**
+ * Converts names between snake_case and camelCase. Names which are already in the target form are returned as is,
+ * and converted names are remembered, so converting the same names repeatedly does not allocate.
+ */
 public final class SnakeCaseConverter {
 
+    private static final MemoizingNameMapper camelCaseNames = new MemoizingNameMapper(SnakeCaseConverter::convertToCamelCase);
+    private static final MemoizingNameMapper snakeCaseNames = new MemoizingNameMapper(SnakeCaseConverter::convertToSnakeCase);
+
     public static String toCamelCase(String s) {
-        StringBuilder result = new StringBuilder();
+        return s.indexOf('_') < 0 ? s : camelCaseNames.apply(s);
+    }
+
+    public static String toSnakeCase(String s) {
+        for (int i = 0, l = s.length(); i < l; i++) {
+            if (Character.isUpperCase(s.charAt(i))) return snakeCaseNames.apply(s);
+        }
+
+        return s;
+    }
+
+    private static String convertToCamelCase(String s) {
+        StringBuilder result = new StringBuilder(s.length());
         boolean nextIsUpperCase = false;
 
-        for (char c : s.toCharArray()) {
+        for (int i = 0, l = s.length(); i < l; i++) {
+            char c = s.charAt(i);
+
             if (c == '_') {
                 nextIsUpperCase = true;
             } else if (nextIsUpperCase) {
@@ -20,11 +41,13 @@ public final class SnakeCaseConverter {
         return result.toString();
     }
 
-    public static String toSnakeCase(String s) {
-        StringBuilder result = new StringBuilder();
+    private static String convertToSnakeCase(String s) {
+        StringBuilder result = new StringBuilder(s.length() + 4);
         boolean skipNextUnderline = true;
 
-        for (char c : s.toCharArray()) {
+        for (int i = 0, l = s.length(); i < l; i++) {
+            char c = s.charAt(i);
+
             if (Character.isUpperCase(c)) {
                 if (!skipNextUnderline) {
                     result.append('_');
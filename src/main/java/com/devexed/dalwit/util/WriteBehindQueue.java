@@ -0,0 +1,337 @@
+package com.devexed.dalwit.util;
+
+import com.devexed.dalwit.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * <p>Bounded queue of writes which are executed behind the back of the caller on a dedicated writer thread. Queued
+ * writes are coalesced into batches which are executed within a single transaction, reusing the prepared statement
+ * of each distinct query in the batch.</p>
+ * <p>The writer thread becomes the only user of the database until the queue is closed. When a batch fails its
+ * writes are retried one at a time, so a single bad write only discards itself. Writes which fail on their own are
+ * counted, logged as a warning along with their cause and discarded.</p>
+ */
+public final class WriteBehindQueue implements Closeable {
+
+    /**
+     * What to do when a write is offered to a full queue.
+     */
+    public enum Overflow {
+        /**
+         * Block the offering thread until there is room in the queue.
+         */
+        BLOCK,
+        /**
+         * Discard the offered write.
+         */
+        SHED
+    }
+
+    private static final Logger logger = Logger.getLogger(WriteBehindQueue.class.getName());
+    private static final Entry closeMarker = new Entry(null, null, null);
+
+    private final Database database;
+    private final int maxBatchSize;
+    private final Overflow overflow;
+    private final ArrayBlockingQueue<Entry> queue;
+    private final Thread thread;
+    private final AtomicLong shed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong flushes = new AtomicLong();
+    private final AtomicLong lastFlushLatency = new AtomicLong();
+    private final AtomicLong maxFlushLatency = new AtomicLong();
+    private boolean closed = false;
+    private volatile boolean stopped = false;
+
+    /**
+     * Create a write behind queue.
+     *
+     * @param database     The database on which to write. Must not be used by other threads until the queue is closed.
+     * @param capacity     The maximum number of writes waiting in the queue.
+     * @param maxBatchSize The maximum number of writes executed within a single transaction.
+     * @param overflow     What to do when the queue is full.
+     */
+    public WriteBehindQueue(Database database, int capacity, int maxBatchSize, Overflow overflow) {
+        if (maxBatchSize <= 0) throw new DatabaseException("Batch size must be one or greater");
+
+        this.database = database;
+        this.maxBatchSize = maxBatchSize;
+        this.overflow = overflow;
+        queue = new ArrayBlockingQueue<>(capacity);
+        thread = new Thread(this::run, "dalwit-write-behind");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Offer a write to the queue.
+     *
+     * @param query      The query to execute.
+     * @param parameters The parameters to bind to the query.
+     * @return True if the write was queued, false if it was shed because the queue was full.
+     * @throws DatabaseException If the queue is closed, or its writer thread has stopped.
+     */
+    public boolean offer(Query query, Map<String, ?> parameters) {
+        Entry entry = new Entry(query, parameters, null);
+
+        synchronized (this) {
+            if (closed) throw new DatabaseException("Already closed");
+            if (stopped) throw new DatabaseException("Write behind queue has stopped");
+
+            if (overflow == Overflow.SHED) {
+                if (queue.offer(entry)) return true;
+
+                shed.incrementAndGet();
+                return false;
+            }
+
+            put(entry);
+            return true;
+        }
+    }
+
+    /**
+     * Wait until all writes offered before this call have been committed, or have failed. Returns right away if the
+     * writer thread has stopped.
+     */
+    public void flush() {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        synchronized (this) {
+            if (closed) throw new DatabaseException("Already closed");
+            put(new Entry(null, null, latch));
+        }
+
+        // The writer thread may have stopped after releasing the queue but before the barrier was put in it.
+        if (stopped) release();
+
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * Close the queue, waiting for all queued writes to be committed.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) throw new DatabaseException("Already closed");
+            closed = true;
+            put(closeMarker);
+        }
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        }
+    }
+
+    /**
+     * @return The number of writes currently waiting in the queue.
+     */
+    public int depth() {
+        return queue.size();
+    }
+
+    /**
+     * @return The total number of writes discarded because the queue was full.
+     */
+    public long shed() {
+        return shed.get();
+    }
+
+    /**
+     * @return The total number of writes discarded because they failed, or because the writer thread stopped before
+     * running them.
+     */
+    public long failed() {
+        return failed.get();
+    }
+
+    /**
+     * @return The total number of committed batches.
+     */
+    public long flushes() {
+        return flushes.get();
+    }
+
+    /**
+     * @return The time in nanoseconds from the oldest write of the last committed batch being queued to it being
+     * committed.
+     */
+    public long lastFlushLatencyNanos() {
+        return lastFlushLatency.get();
+    }
+
+    /**
+     * @return The greatest time in nanoseconds from the oldest write of a committed batch being queued to it being
+     * committed.
+     */
+    public long maxFlushLatencyNanos() {
+        return maxFlushLatency.get();
+    }
+
+    private void put(Entry entry) {
+        try {
+            queue.put(entry);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DatabaseException(e);
+        }
+    }
+
+    private void run() {
+        ArrayList<Entry> batch = new ArrayList<>(maxBatchSize);
+        ArrayList<Entry> writes = new ArrayList<>(maxBatchSize);
+
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+
+                for (Entry entry : batch) {
+                    if (entry.query != null) {
+                        writes.add(entry);
+                        continue;
+                    }
+
+                    // Commit the writes preceding a flush barrier or the close marker before acknowledging it.
+                    write(writes);
+                    writes.clear();
+
+                    if (entry == closeMarker) {
+                        batch.clear();
+                        return;
+                    }
+
+                    entry.latch.countDown();
+                }
+
+                write(writes);
+                writes.clear();
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            stopped = true;
+
+            // Release the flush barriers left by a writer thread stopped by an interrupt or error, waiting either in
+            // the batch or the queue.
+            for (Entry entry : batch) {
+                if (entry.query != null) failed.incrementAndGet();
+                else if (entry.latch != null) entry.latch.countDown();
+            }
+
+            release();
+        }
+    }
+
+    /**
+     * Empty the queue of a stopped writer thread, discarding its writes and releasing its flush barriers.
+     */
+    private void release() {
+        Entry entry;
+
+        while ((entry = queue.poll()) != null) {
+            if (entry.query != null) failed.incrementAndGet();
+            else if (entry.latch != null) entry.latch.countDown();
+        }
+    }
+
+    private void write(ArrayList<Entry> writes) {
+        if (writes.isEmpty()) return;
+
+        RuntimeException failure = execute(writes);
+        if (failure == null) return;
+
+        // Isolate the failing writes by retrying the batch one write at a time.
+        if (writes.size() == 1) {
+            discard(writes.get(0), failure);
+            return;
+        }
+
+        ArrayList<Entry> single = new ArrayList<>(1);
+
+        for (Entry entry : writes) {
+            single.add(entry);
+            failure = execute(single);
+            if (failure != null) discard(entry, failure);
+            single.clear();
+        }
+    }
+
+    private void discard(Entry entry, RuntimeException cause) {
+        failed.incrementAndGet();
+        logger.log(Level.WARNING, "Discarded failed write: " + entry.query.sql(), cause);
+    }
+
+    /**
+     * Execute writes in a single transaction.
+     *
+     * @return The exception which failed the transaction, or null if the writes were committed.
+     */
+    private RuntimeException execute(ArrayList<Entry> writes) {
+        HashMap<Query, Statement> statements = new HashMap<>();
+
+        try (Transaction transaction = database.transact()) {
+            try {
+                for (Entry entry : writes) {
+                    Statement statement = statements.get(entry.query);
+
+                    if (statement == null) {
+                        statement = transaction.prepare(entry.query);
+                        statements.put(entry.query, statement);
+                    }
+
+                    Statements.bindAll(statement, entry.parameters);
+                    statement.execute();
+                }
+            } finally {
+                for (Statement statement : statements.values()) statement.close();
+            }
+
+            transaction.commit();
+        } catch (RuntimeException e) {
+            return e;
+        }
+
+        long latency = System.nanoTime() - writes.get(0).queued;
+        flushes.incrementAndGet();
+        lastFlushLatency.set(latency);
+        maxFlushLatency.accumulateAndGet(latency, Math::max);
+
+        return null;
+    }
+
+    private static final class Entry {
+
+        private final Query query;
+        private final Map<String, ?> parameters;
+        private final CountDownLatch latch;
+        private final long queued;
+
+        private Entry(Query query, Map<String, ?> parameters, CountDownLatch latch) {
+            this.query = query;
+            this.parameters = parameters;
+            this.latch = latch;
+            queued = System.nanoTime();
+        }
+
+    }
+
+}
@@ -1,12 +1,38 @@
 package com.devexed.dalwit;
 
+import com.devexed.dalwit.util.AsyncConnection;
+import com.devexed.dalwit.util.AsyncDatabase;
+import com.devexed.dalwit.util.AsyncStatement;
+import com.devexed.dalwit.util.ClosingCursor;
+import com.devexed.dalwit.util.CursorPublisher;
+import com.devexed.dalwit.util.Cursors;
+import com.devexed.dalwit.util.GroupCommitExecutor;
+import com.devexed.dalwit.util.LeakDetector;
+import com.devexed.dalwit.util.MaterializedCursor;
 import com.devexed.dalwit.util.ObjectDescriptor;
 import com.devexed.dalwit.util.ObjectIterable;
+import com.devexed.dalwit.util.PrefetchingCursor;
+import com.devexed.dalwit.util.WriteBehindQueue;
 
 import junit.framework.TestCase;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLTransientException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
 
 /**
  * Note: Tests written in JUNIT 3 style for Android compatibility.
@@ -409,6 +435,117 @@ public abstract class DatabaseTestCase extends TestCase {
         }
     }
 
+    public void testDynamicListParameter() {
+        Query.of("CREATE TABLE t9b (a INTEGER)").on(db).execute();
+        Query.of("INSERT INTO t9b (a) VALUES (1), (2), (3), (4), (5), (6)").on(db).execute();
+        Query query = Query.builder("SELECT a FROM t9b WHERE a IN :as AND a < :max")
+                .column("a", Integer.TYPE)
+                .parameter("max", Integer.TYPE)
+                .listParameter("as", Integer.TYPE)
+                .build();
+
+        assertEquals(1, Query.listBucketSize(0));
+        assertEquals(1, Query.listBucketSize(1));
+        assertEquals(4, Query.listBucketSize(3));
+        assertEquals(8, Query.listBucketSize(5));
+        assertSame(query.withListSizes(Collections.singletonMap("as", 4)),
+                query.withListSizes(Collections.singletonMap("as", Query.listBucketSize(3))));
+
+        try (Statement selectStatement = db.prepare(query)) {
+            selectStatement.bind("max", 6);
+            List<List<Integer>> lists = Arrays.asList(Collections.singletonList(2), Arrays.asList(1, 3, 5),
+                    Arrays.asList(1, 2, 3, 4, 6));
+
+            for (List<Integer> list : lists) {
+                selectStatement.bind("as", list);
+                HashSet<Integer> results = new HashSet<>();
+
+                try (Cursor cursor = selectStatement.query()) {
+                    while (cursor.next()) results.add(cursor.get("a"));
+                }
+
+                HashSet<Integer> expected = new HashSet<>(list);
+                expected.remove(6);
+                assertEquals(expected, results);
+            }
+
+            selectStatement.bind("as", new int[]{4, 5});
+            HashSet<Integer> results = new HashSet<>();
+
+            try (Cursor cursor = selectStatement.query()) {
+                while (cursor.next()) results.add(cursor.get("a"));
+            }
+
+            assertEquals(new HashSet<>(Arrays.asList(4, 5)), results);
+
+            // The bound list is copied, so changing it afterwards does not change what is sent.
+            ArrayList<Integer> boundList = new ArrayList<>(Arrays.asList(1, 2));
+            selectStatement.bind("as", boundList);
+            boundList.set(0, 3);
+            results.clear();
+
+            try (Cursor cursor = selectStatement.query()) {
+                while (cursor.next()) results.add(cursor.get("a"));
+            }
+
+            assertEquals(new HashSet<>(Arrays.asList(1, 2)), results);
+
+            // Empty lists and values of the wrong type are rejected when bound rather than when executed.
+            try {
+                selectStatement.bind("as", Collections.emptyList());
+                fail("Should throw");
+            } catch (DatabaseException e) {
+                // Expected
+            }
+
+            try {
+                selectStatement.bind("as", Arrays.asList(1, "2"));
+                fail("Should throw");
+            } catch (DatabaseException e) {
+                // Expected
+            }
+
+            try {
+                selectStatement.bind("max", "6");
+                fail("Should throw");
+            } catch (DatabaseException e) {
+                // Expected
+            }
+        }
+
+        // Padding repeats the last value, which keeps NOT IN correct.
+        Query notInQuery = Query.builder("SELECT a FROM t9b WHERE a NOT IN :as")
+                .column("a", Integer.TYPE)
+                .listParameter("as", Integer.TYPE)
+                .build();
+        HashSet<Integer> results = new HashSet<>();
+
+        try (Cursor cursor = notInQuery.on(db).bind("as", Arrays.asList(1, 2, 3)).query()) {
+            while (cursor.next()) results.add(cursor.get("a"));
+        }
+
+        assertEquals(new HashSet<>(Arrays.asList(4, 5, 6)), results);
+    }
+
+    public void testFetchSizeAndMaxRows() {
+        Query.of("CREATE TABLE t9c (a INTEGER)").on(db).execute();
+        Query.of("INSERT INTO t9c (a) VALUES (1), (2), (3), (4), (5)").on(db).execute();
+        Query query = Query.builder("SELECT a FROM t9c ORDER BY a")
+                .column("a", Integer.TYPE)
+                .fetchSize(2)
+                .maxRows(3)
+                .build();
+        assertEquals(2, query.options().fetchSize());
+        assertEquals(3, query.options().maxRows());
+        ArrayList<Integer> results = new ArrayList<>();
+
+        try (Cursor cursor = query.on(db).query()) {
+            while (cursor.next()) results.add(cursor.get("a"));
+        }
+
+        assertEquals(Arrays.asList(1, 2, 3), results);
+    }
+
     public void testSnakeCaseColumn1() {
         Query.of("CREATE TABLE t10 (a_a INTEGER)").on(db).execute();
         Query.of("INSERT INTO t10 (a_a) VALUES (1)").on(db).execute();
@@ -435,4 +572,622 @@ public abstract class DatabaseTestCase extends TestCase {
         }
     }
 
+    public void testAsyncDatabase() throws Exception {
+        Query insertQuery = Query.builder("INSERT INTO async (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+        Query sumQuery = Query.builder("SELECT SUM(a) AS s FROM async").column("s", Long.TYPE).build();
+        AsyncConnection asyncConnection = new AsyncConnection(connection);
+        AsyncDatabase database = asyncConnection.write().get(10, TimeUnit.SECONDS);
+
+        database.transact(transaction -> {
+            Query.of("CREATE TABLE async (a INTEGER)").on(transaction).execute();
+            transaction.commit();
+
+            return null;
+        }).get(10, TimeUnit.SECONDS);
+
+        // Submitted operations run in order, so the inserts need not wait for each other or the statement.
+        AsyncStatement statement = database.prepare(insertQuery).get(10, TimeUnit.SECONDS);
+        ArrayList<CompletableFuture<Long>> inserts = new ArrayList<>();
+        for (int i = 1; i <= 10; i++) inserts.add(statement.update(Collections.singletonMap("a", i)));
+        statement.close();
+
+        for (CompletableFuture<Long> insert : inserts) assertEquals(1L, (long) insert.get(10, TimeUnit.SECONDS));
+
+        long sum = database.query(sumQuery, Collections.<String, Object>emptyMap(), cursor -> {
+            assertTrue(cursor.next());
+            return cursor.<Long>get("s");
+        }).get(10, TimeUnit.SECONDS);
+        assertEquals(55, sum);
+
+        try {
+            database.update(Query.of("INSERT INTO missing VALUES (1)"), Collections.<String, Object>emptyMap())
+                    .get(10, TimeUnit.SECONDS);
+            fail("Expected the update to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DatabaseException);
+        }
+
+        database.close().get(10, TimeUnit.SECONDS);
+    }
+
+    public void testCursorPublisher() throws Exception {
+        Query.of("CREATE TABLE pub (a INTEGER)").on(db).execute();
+        Query.of("INSERT INTO pub (a) VALUES (1), (2), (3), (4), (5)").on(db).execute();
+        Query selectQuery = Query.builder("SELECT a FROM pub ORDER BY a").column("a", Integer.TYPE).build();
+
+        // Request two rows at a time until complete.
+        CountDownLatch completed = new CountDownLatch(1);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean closed = new AtomicBoolean();
+        Cursor cursor = new ClosingCursor(() -> closed.set(true), selectQuery.on(db).query());
+        new CursorPublisher<Integer>(cursor, c -> c.get("a")).subscribe(new Flow.Subscriber<Integer>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(2);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                received.add(item);
+                if (received.size() % 2 == 0) subscription.request(2);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                completed.countDown();
+            }
+
+            @Override
+            public void onComplete() {
+                completed.countDown();
+            }
+        });
+
+        assertTrue(completed.await(10, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2, 3, 4, 5), received);
+        assertTrue(closed.get());
+
+        // Cancel after the first row, which must close the cursor without fetching further rows.
+        CountDownLatch cancelled = new CountDownLatch(1);
+        List<Integer> first = Collections.synchronizedList(new ArrayList<>());
+        Cursor cancelledCursor = new ClosingCursor(cancelled::countDown, selectQuery.on(db).query());
+        new CursorPublisher<Integer>(cancelledCursor, c -> c.get("a")).subscribe(new Flow.Subscriber<Integer>() {
+            private Flow.Subscription subscription;
+
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                this.subscription = subscription;
+                subscription.request(1);
+            }
+
+            @Override
+            public void onNext(Integer item) {
+                first.add(item);
+                subscription.cancel();
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        assertEquals(Collections.singletonList(1), first);
+    }
+
+    public void testPrefetchingCursor() {
+        Query.of("CREATE TABLE pre (a INTEGER, b VARCHAR(10))").on(db).execute();
+
+        try (Transaction transaction = db.transact();
+             Statement statement = transaction.prepare(Query.builder("INSERT INTO pre (a, b) VALUES (:a, :b)")
+                     .parameter("a", Integer.TYPE)
+                     .parameter("b", String.class)
+                     .build())) {
+            for (int i = 0; i < 100; i++) {
+                statement.bind("a", i);
+                statement.bind("b", "row" + i);
+                statement.execute();
+            }
+
+            transaction.commit();
+        }
+
+        Query selectQuery = Query.builder("SELECT a, b FROM pre ORDER BY a")
+                .column("a", Integer.TYPE)
+                .column("b", String.class)
+                .build();
+        AtomicBoolean closed = new AtomicBoolean();
+
+        try (Cursor cursor = new PrefetchingCursor(new ClosingCursor(() -> closed.set(true),
+                selectQuery.on(db).query()), Arrays.asList("a", "b"), 8)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(cursor.next());
+                assertEquals(i, (int) cursor.<Integer>get("A"));
+                assertEquals("row" + i, cursor.<String>get("b"));
+            }
+
+            assertFalse(cursor.next());
+        }
+
+        assertTrue(closed.get());
+
+        // Closing before the end stops prefetching and closes the wrapped cursor.
+        closed.set(false);
+
+        try (Cursor cursor = new PrefetchingCursor(new ClosingCursor(() -> closed.set(true),
+                selectQuery.on(db).query()), Collections.singletonList("a"), 4)) {
+            assertTrue(cursor.seek(10));
+            assertEquals(9, (int) cursor.<Integer>get("a"));
+        }
+
+        assertTrue(closed.get());
+    }
+
+    public void testRowBatch() {
+        Query.of("CREATE TABLE rb (a INTEGER, b BIGINT, c DOUBLE, d VARCHAR(10))").on(db).execute();
+
+        try (Transaction transaction = db.transact();
+             Statement statement = transaction.prepare(Query.builder("INSERT INTO rb (a, b, c, d) VALUES (:a, :b, :c, :d)")
+                     .parameter("a", Integer.class)
+                     .parameter("b", Long.TYPE)
+                     .parameter("c", Double.TYPE)
+                     .parameter("d", String.class)
+                     .build())) {
+            for (int i = 0; i < 10; i++) {
+                statement.bind("a", i == 3 ? null : i);
+                statement.bind("b", i * 1000000000000L);
+                statement.bind("c", i / 2.0);
+                statement.bind("d", "row" + i);
+                statement.execute();
+            }
+
+            transaction.commit();
+        }
+
+        Query selectQuery = Query.builder("SELECT a, b, c, d FROM rb ORDER BY b")
+                .column("a", Integer.class)
+                .column("b", Long.TYPE)
+                .column("c", Double.TYPE)
+                .column("d", String.class)
+                .build();
+
+        // Fetch both directly from the result set and through the default implementation of other cursors.
+        for (boolean direct : new boolean[]{true, false}) {
+            RowBatch batch = new RowBatch(4, selectQuery.columns());
+            int a = batch.column("a");
+            int b = batch.column("B");
+            int c = batch.column("c");
+            int d = batch.column("d");
+            assertEquals(RowBatch.VectorType.INT, batch.type(a));
+            assertEquals(RowBatch.VectorType.LONG, batch.type(b));
+            assertEquals(RowBatch.VectorType.DOUBLE, batch.type(c));
+            assertEquals(RowBatch.VectorType.OBJECT, batch.type(d));
+            Cursor query = selectQuery.on(db).query();
+            int i = 0;
+
+            try (Cursor cursor = direct ? query : new PrefetchingCursor(query, selectQuery.columns().keySet(), 2)) {
+                for (int expectedSize : new int[]{4, 4, 2, 0}) {
+                    assertEquals(expectedSize, cursor.fetch(batch));
+                    assertEquals(expectedSize, batch.size());
+
+                    for (int row = 0; row < batch.size(); row++, i++) {
+                        assertEquals(i == 3, batch.isNull(a, row));
+                        if (i != 3) assertEquals(i, batch.ints(a)[row]);
+                        assertEquals(i * 1000000000000L, batch.longs(b)[row]);
+                        assertEquals(i / 2.0, batch.doubles(c)[row]);
+                        assertEquals("row" + i, batch.objects(d)[row]);
+                    }
+                }
+            }
+
+            assertEquals(10, i);
+        }
+    }
+
+    public void testMaterializedCursor() throws IOException {
+        Query.of("CREATE TABLE mc (a INTEGER, b BIGINT, c DOUBLE, d VARCHAR(10), e SMALLINT, f DECIMAL(10, 2), "
+                + "g BLOB)").on(db).execute();
+
+        try (Transaction transaction = db.transact();
+             Statement statement = transaction.prepare(Query.builder(
+                     "INSERT INTO mc (a, b, c, d, e, f, g) VALUES (:a, :b, :c, :d, :e, :f, :g)")
+                     .parameter("a", Integer.class)
+                     .parameter("b", Long.TYPE)
+                     .parameter("c", Double.TYPE)
+                     .parameter("d", String.class)
+                     .parameter("e", Short.class)
+                     .parameter("f", BigDecimal.class)
+                     .parameter("g", byte[].class)
+                     .build())) {
+            for (int i = 0; i < 1000; i++) {
+                statement.bind("a", i % 7 == 3 ? null : i);
+                statement.bind("b", i * 1000000000000L);
+                statement.bind("c", i / 2.0);
+                statement.bind("d", i % 5 == 0 ? null : "group" + i % 3);
+                statement.bind("e", (short) -i);
+                statement.bind("f", BigDecimal.valueOf(i, 2));
+                statement.bind("g", new byte[]{(byte) i, (byte) (i >> 8)});
+                statement.execute();
+            }
+
+            transaction.commit();
+        }
+
+        Query selectQuery = Query.builder("SELECT a, b, c, d, e, f, g FROM mc ORDER BY b")
+                .column("a", Integer.class)
+                .column("b", Long.TYPE)
+                .column("c", Double.TYPE)
+                .column("d", String.class)
+                .column("e", Short.class)
+                .column("f", BigDecimal.class)
+                .column("g", byte[].class)
+                .build();
+        Path directory = Files.createTempDirectory("dalwit-test");
+
+        // Materialize on the heap, off the heap, spilling everything and spilling past a limit.
+        for (int mode = 0; mode < 4; mode++) {
+            MaterializedCursor materialized;
+
+            if (mode == 0) {
+                materialized = selectQuery.on(db).materialize();
+            } else if (mode == 1) {
+                materialized = MaterializedCursor.materialize(selectQuery.on(db).query(), selectQuery.columns(), true);
+            } else {
+                materialized = MaterializedCursor.materialize(selectQuery.on(db).query(), selectQuery.columns(),
+                        false, mode == 2 ? 0 : 8192, directory);
+            }
+
+            try (MaterializedCursor cursor = materialized) {
+                assertEquals(1000, cursor.size());
+                assertEquals(mode >= 2, cursor.isSpilled());
+
+                // Scan twice, then visit rows out of order.
+                for (int scan = 0; scan < 2; scan++) {
+                    int i = 0;
+
+                    while (cursor.next()) {
+                        assertMaterializedRow(cursor, i);
+                        i++;
+                    }
+
+                    assertEquals(1000, i);
+                    assertEquals(1000, cursor.position());
+                    cursor.beforeFirst();
+                }
+
+                assertTrue(cursor.seek(500));
+                assertMaterializedRow(cursor, 499);
+                assertTrue(cursor.seek(-400));
+                assertMaterializedRow(cursor, 99);
+                assertTrue(cursor.previous());
+                assertMaterializedRow(cursor, 98);
+                assertFalse(cursor.seek(-1000));
+                assertEquals(-1, cursor.position());
+                assertTrue(cursor.seek(1000));
+                assertMaterializedRow(cursor, 999);
+                assertFalse(cursor.next());
+                assertNull(cursor.getter("missing"));
+
+                // Equal strings are stored once, and spilled ones are read back once.
+                cursor.beforeFirst();
+                cursor.seek(2);
+                String first = cursor.get("d");
+                cursor.seek(3);
+                assertSame(first, cursor.get("d"));
+            }
+
+            // Closing deletes the temporary files.
+            try (Stream<Path> files = Files.list(directory)) {
+                assertEquals(0, files.count());
+            }
+        }
+
+        Files.delete(directory);
+    }
+
+    private static void assertMaterializedRow(Cursor cursor, int i) {
+        assertEquals(i % 7 == 3 ? null : (Integer) i, cursor.<Integer>get("a"));
+        assertEquals((Long) (i * 1000000000000L), cursor.<Long>get("B"));
+        assertEquals(i / 2.0, cursor.<Double>get("c"));
+        assertEquals(i % 5 == 0 ? null : "group" + i % 3, cursor.<String>get("d"));
+        assertEquals((Short) (short) -i, cursor.<Short>get("e"));
+        assertEquals(0, BigDecimal.valueOf(i, 2).compareTo(cursor.<BigDecimal>get("f")));
+        assertTrue(Arrays.equals(new byte[]{(byte) i, (byte) (i >> 8)}, cursor.<byte[]>get("g")));
+    }
+
+    public void testGroupCommit() throws Exception {
+        Query.of("CREATE TABLE t11 (a INTEGER)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO t11 (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+        Query selectQuery = Query.builder("SELECT count(*) AS c FROM t11").column("c", Integer.TYPE).build();
+        ArrayList<CompletableFuture<Integer>> futures = new ArrayList<>();
+        CompletableFuture<Integer> failed;
+
+        try (GroupCommitExecutor executor = new GroupCommitExecutor(db, 16, 10, TimeUnit.MILLISECONDS)) {
+            for (int i = 0; i < 100; i++) {
+                final int a = i;
+                futures.add(executor.submit(transaction -> {
+                    insertQuery.on(transaction).bind("a", a).execute();
+                    return a;
+                }));
+            }
+
+            failed = executor.submit(transaction -> {
+                insertQuery.on(transaction).bind("a", -1).execute();
+                throw new DatabaseException("Failing unit");
+            });
+        }
+
+        for (int i = 0; i < futures.size(); i++) assertEquals(i, (int) futures.get(i).get());
+
+        try {
+            failed.get();
+            fail("Should throw");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof DatabaseException);
+        }
+
+        // Ensure only the rows of the successful units were committed.
+        try (Cursor cursor = selectQuery.on(db).query()) {
+            assertTrue(cursor.next());
+            assertEquals(100, (int) cursor.get("c"));
+        }
+    }
+
+    public void testGroupCommitError() throws Exception {
+        Query.of("CREATE TABLE t15 (a INTEGER)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO t15 (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+        GroupCommitExecutor executor = new GroupCommitExecutor(db, 16, 200, TimeUnit.MILLISECONDS);
+        CompletableFuture<Integer> inserted = executor.submit(transaction -> {
+            insertQuery.on(transaction).bind("a", 1).execute();
+            return 1;
+        });
+        CompletableFuture<Integer> failed = executor.submit(transaction -> {
+            throw new AssertionError("Failing unit");
+        });
+
+        // An error stops the writer thread, failing the whole group rather than leaving its futures pending.
+        for (CompletableFuture<Integer> future : Arrays.asList(inserted, failed)) {
+            try {
+                future.get(10, TimeUnit.SECONDS);
+                fail("Should throw");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof AssertionError);
+            }
+        }
+
+        try {
+            executor.submit(transaction -> 1);
+            fail("Should throw");
+        } catch (DatabaseException e) {
+            // Expected
+        }
+
+        executor.close();
+    }
+
+    public void testWriteBehindQueue() {
+        Query.of("CREATE TABLE t12 (a INTEGER)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO t12 (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+        Query selectQuery = Query.builder("SELECT count(*) AS c FROM t12").column("c", Integer.TYPE).build();
+
+        try (WriteBehindQueue queue = new WriteBehindQueue(db, 64, 16, WriteBehindQueue.Overflow.BLOCK)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(queue.offer(insertQuery, Collections.singletonMap("a", i)));
+            }
+
+            queue.flush();
+            assertEquals(0, queue.depth());
+            assertEquals(0, queue.failed());
+            assertTrue(queue.flushes() > 0);
+        }
+
+        try (Cursor cursor = selectQuery.on(db).query()) {
+            assertTrue(cursor.next());
+            assertEquals(100, (int) cursor.get("c"));
+        }
+    }
+
+    public void testWriteBehindQueueIsolatesFailedWrites() {
+        Query.of("CREATE TABLE t16 (a INTEGER NOT NULL)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO t16 (a) VALUES (:a)").parameter("a", Integer.class).build();
+        Query selectQuery = Query.builder("SELECT count(*) AS c FROM t16").column("c", Integer.TYPE).build();
+
+        List<LogRecord> records = Collections.synchronizedList(new ArrayList<>());
+        Logger logger = Logger.getLogger(WriteBehindQueue.class.getName());
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                records.add(record);
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        logger.addHandler(handler);
+
+        try (WriteBehindQueue queue = new WriteBehindQueue(db, 64, 16, WriteBehindQueue.Overflow.BLOCK)) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(queue.offer(insertQuery, Collections.singletonMap("a", i == 5 ? null : i)));
+            }
+
+            queue.flush();
+            assertEquals(1, queue.failed());
+        } finally {
+            logger.removeHandler(handler);
+        }
+
+        // The discarded write is logged along with the reason it failed.
+        assertEquals(1, records.size());
+        assertEquals(Level.WARNING, records.get(0).getLevel());
+        assertTrue(records.get(0).getThrown() instanceof DatabaseException);
+
+        // Only the bad write is discarded, not the rest of its batch.
+        try (Cursor cursor = selectQuery.on(db).query()) {
+            assertTrue(cursor.next());
+            assertEquals(9, (int) cursor.get("c"));
+        }
+    }
+
+    public void testReadOnlyNestedTransactionRollsBackChildWrites() {
+        Query.of("CREATE TABLE t13 (a VARCHAR(50) NULL)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO t13 (a) VALUES (:a)").parameter("a", String.class).build();
+        Query selectQuery = Query.builder("SELECT a FROM t13").column("a", String.class).build();
+
+        Transaction transaction = db.transact();
+
+        // Parent which only reads before its child writes.
+        Transaction readingTransaction = transaction.transact();
+
+        try (Cursor cursor = selectQuery.on(readingTransaction).query()) {
+            assertFalse(cursor.next());
+        }
+
+        Transaction writingTransaction = readingTransaction.transact();
+        insertQuery.on(writingTransaction).bind("a", "should not be committed").execute();
+        writingTransaction.commit();
+        writingTransaction.close();
+
+        // Rolling back the reading parent must also undo the committed child.
+        readingTransaction.close();
+
+        // Transaction which does nothing at all.
+        Transaction emptyTransaction = transaction.transact();
+        emptyTransaction.commit();
+        emptyTransaction.close();
+
+        transaction.commit();
+        transaction.close();
+
+        try (Cursor cursor = selectQuery.on(db).query()) {
+            assertFalse(cursor.next());
+        }
+    }
+
+    public void testTransactRetriesTransientFailures() {
+        Query.of("CREATE TABLE t14 (a INTEGER)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO t14 (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+        Query selectQuery = Query.builder("SELECT count(*) AS c FROM t14").column("c", Integer.TYPE).build();
+        RetryPolicy policy = new RetryPolicy(3, 1, 10, TimeUnit.MILLISECONDS);
+        int[] attempts = new int[]{0};
+
+        int result = db.transact(transaction -> {
+            insertQuery.on(transaction).bind("a", attempts[0]).execute();
+            attempts[0]++;
+
+            if (attempts[0] < 3) throw new DatabaseException(new SQLTransientException("Busy"));
+
+            return attempts[0];
+        }, policy);
+
+        assertEquals(3, result);
+        assertEquals(1, policy.calls());
+        assertEquals(2, policy.retries());
+        assertEquals(1, policy.retryCounts()[2]);
+
+        // Failures which are not transient are not retried.
+        try {
+            db.transact(transaction -> {
+                throw new DatabaseException("Not transient");
+            }, policy);
+            fail("Should throw");
+        } catch (DatabaseException e) {
+            assertEquals(2, policy.retries());
+        }
+
+        // Only the insert of the successful attempt is committed.
+        try (Cursor cursor = selectQuery.on(db).query()) {
+            assertTrue(cursor.next());
+            assertEquals(1, (int) cursor.get("c"));
+        }
+    }
+
+    public void testLeakDetector() throws InterruptedException {
+        String cursorType = Cursors.singleton("a", 1).getClass().getName();
+        LeakDetector.enable(1);
+        LeakDetector.reset();
+
+        try {
+            db.prepare(Query.of("SELECT 1")).close();
+            Cursors.singleton("a", 1);
+
+            // Closeables whose constructor fails are never returned to be closed, so they must not count as leaks.
+            try {
+                db.prepare(Query.of("SELECT FROM WHERE"));
+                fail("Expected invalid SQL to fail");
+            } catch (DatabaseException expected) {
+            }
+
+            try (Cursor cursor = Cursors.singleton("a", 1)) {
+                new PrefetchingCursor(cursor, Collections.singletonList("b"), 4);
+                fail("Expected unknown column to fail");
+            } catch (DatabaseException expected) {
+            }
+
+            // Other tests may leak closeables or start threads creating them, so only count leaks created here.
+            LeakDetector.Report report = LeakDetector.report();
+
+            for (int i = 0; i < 100 && leaksCreatedIn(report, "testLeakDetector") == 0; i++) {
+                System.gc();
+                Thread.sleep(10);
+                report = LeakDetector.report();
+            }
+
+            assertEquals(1, leaksCreatedIn(report, "testLeakDetector"));
+            assertTrue(report.byType().get(cursorType) >= 1);
+        } finally {
+            LeakDetector.disable();
+            LeakDetector.reset();
+        }
+    }
+
+    private static long leaksCreatedIn(LeakDetector.Report report, String method) {
+        long leaks = 0;
+
+        for (Map.Entry<String, Long> e : report.bySite().entrySet()) {
+            if (e.getKey().contains("." + method + "(")) leaks += e.getValue();
+        }
+
+        return leaks;
+    }
+
+    public void testNamesAreCaseInsensitive() {
+        Query.of("CREATE TABLE t_case (a INTEGER, b VARCHAR(50))").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO t_case (a, b) VALUES (:ValueA, :valueb)")
+                .parameter("valuea", Integer.TYPE)
+                .parameter("ValueB", String.class)
+                .build();
+        assertSame(insertQuery.parameter("VALUEA"), insertQuery.parameter("valueA"));
+        assertEquals("valueb", insertQuery.parameter("VALUEB").name());
+
+        try (Statement statement = db.prepare(insertQuery)) {
+            assertSame(statement.binder("valuea"), statement.binder("VALUEA"));
+            statement.bind("VALUEA", 1);
+            statement.bind("valueB", "one");
+            statement.execute();
+        }
+
+        try (Cursor cursor = Query.builder("SELECT a, b FROM t_case")
+                .column("A", Integer.TYPE)
+                .column("b", String.class)
+                .on(db)
+                .query()) {
+            assertTrue(cursor.next());
+            assertEquals(Integer.valueOf(1), cursor.<Integer>get("a"));
+            assertEquals("one", cursor.<String>get("B"));
+            assertSame(cursor.getter("b"), cursor.getter("B"));
+        }
+    }
+
 }
@@ -0,0 +1,13 @@
+package com.devexed.dalwit;
+
+import com.devexed.dalwit.jdbc.DefaultJdbcAccessorFactory;
+import com.devexed.dalwit.jdbc.FunctionJdbcGeneratedKeysSelector;
+
+public final class H2ManualCommitJdbcDatabaseTest extends JdbcFileDatabaseTestCase {
+
+    public H2ManualCommitJdbcDatabaseTest() {
+        super("h2", "org.h2.Driver", "jdbc:h2:", new DefaultJdbcAccessorFactory(),
+                new FunctionJdbcGeneratedKeysSelector("scope_identity()", Long.TYPE), true);
+    }
+
+}
@@ -3,35 +3,97 @@ package com.devexed.dalwit;
 import com.devexed.dalwit.jdbc.DefaultJdbcAccessorFactory;
 import com.devexed.dalwit.jdbc.JdbcConnection;
 import com.devexed.dalwit.jdbc.JdbcGeneratedKeysSelector;
+import com.devexed.dalwit.jdbc.JdbcQueryPlanExplainer;
+import com.devexed.dalwit.jdbc.JdbcTestDatabases;
+import com.devexed.dalwit.util.Histogram;
+import com.devexed.dalwit.util.JfrListener;
+import com.devexed.dalwit.util.MetricsListener;
+import com.devexed.dalwit.util.ObjectDescriptor;
+import com.devexed.dalwit.util.ObjectGetter;
+import com.devexed.dalwit.util.SnakeCaseObjectColumnMapper;
+import com.devexed.dalwit.util.SlowQueryLog;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
 
 import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 public abstract class JdbcFileDatabaseTestCase extends DatabaseTestCase {
 
+    /**
+     * Bytes allocated per bind, {@link Cursor#get} and {@link ObjectGetter#get} by driver, since drivers allocate
+     * differently. Lower these when an optimization reduces allocations and only raise them deliberately.
+     */
+    private static final Map<String, long[]> allocationBudgets = new HashMap<>();
+
+    /**
+     * Bytes allowed beyond every budget, about one boxed value, since whether allocations are eliminated by escape
+     * analysis depends on the JVM and its version.
+     */
+    private static final long allocationSlack = 32;
+
+    static {
+        allocationBudgets.put("h2", new long[]{0, 0, 80});
+        allocationBudgets.put("sqlite", new long[]{16, 0, 272});
+    }
+
     private final String name;
     private final String driver;
     private final String prefix;
     private final DefaultJdbcAccessorFactory accessorFactory;
     private final JdbcGeneratedKeysSelector selector;
+    private final boolean manualCommit;
 
     private File file;
 
     protected JdbcFileDatabaseTestCase(String name, String driver, String prefix,
                                        DefaultJdbcAccessorFactory accessorFactory,
                                        JdbcGeneratedKeysSelector selector) {
+        this(name, driver, prefix, accessorFactory, selector, false);
+    }
+
+    protected JdbcFileDatabaseTestCase(String name, String driver, String prefix,
+                                       DefaultJdbcAccessorFactory accessorFactory,
+                                       JdbcGeneratedKeysSelector selector,
+                                       boolean manualCommit) {
         this.name = name;
         this.driver = driver;
         this.prefix = prefix;
         this.accessorFactory = accessorFactory;
         this.selector = selector;
+        this.manualCommit = manualCommit;
     }
 
     @Override
     public Connection createConnection() {
         try {
             file = File.createTempFile("test." + name, ".db");
-            return new JdbcConnection(driver, prefix + file.getAbsolutePath(), new Properties(), accessorFactory, selector, new DefaultColumnNameMapper());
+            return JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                    .properties(new Properties())
+                    .accessorFactory(accessorFactory)
+                    .generatedKeysSelector(selector)
+                    .columnNameMapper(new DefaultColumnNameMapper())
+                    .manualCommit(manualCommit)
+                    .build();
         } catch (Exception e) {
             throw new RuntimeException(e);
         }
@@ -42,4 +104,695 @@ public abstract class JdbcFileDatabaseTestCase extends DatabaseTestCase {
         if (!file.delete()) throw new RuntimeException("Failed to delete database file " + file.getAbsolutePath());
     }
 
+    public void testMetricsListener() {
+        MetricsListener metrics = new MetricsListener();
+        Connection metricsConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .manualCommit(manualCommit)
+                .listener(metrics)
+                .build();
+        Query.of("CREATE TABLE m1 (a INTEGER)").on(db).execute();
+        Query insertQuery = Query.builder("INSERT INTO m1 (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+        Query selectQuery = Query.builder("SELECT a FROM m1 WHERE a <> 5 -- comment\n AND a IN (:x, :y, :z)")
+                .parameter("x", Integer.TYPE)
+                .parameter("y", Integer.TYPE)
+                .parameter("z", Integer.TYPE)
+                .column("a", Integer.TYPE)
+                .build();
+        assertEquals("select a from m1 where a<>? and a in(?...)", selectQuery.fingerprint());
+
+        try (Database database = metricsConnection.write()) {
+            try (Transaction transaction = database.transact()) {
+                for (int i = 0; i < 10; i++) insertQuery.on(transaction).bind("a", i).execute();
+                transaction.commit();
+            }
+
+            try (Cursor cursor = selectQuery.on(database).bind("x", 1).bind("y", 2).bind("z", 3).query()) {
+                while (cursor.next()) cursor.get("a");
+            }
+        }
+
+        Map<String, Map<DatabaseListener.Operation, Histogram.Snapshot>> snapshot = metrics.snapshot();
+        Map<DatabaseListener.Operation, Histogram.Snapshot> insertMetrics = snapshot.get(insertQuery.fingerprint());
+        assertEquals(10, insertMetrics.get(DatabaseListener.Operation.PREPARE).count());
+        assertEquals(10, insertMetrics.get(DatabaseListener.Operation.BIND).count());
+        assertEquals(10, insertMetrics.get(DatabaseListener.Operation.EXECUTE).count());
+        assertEquals(10, insertMetrics.get(DatabaseListener.Operation.CLOSE).count());
+
+        Map<DatabaseListener.Operation, Histogram.Snapshot> selectMetrics = snapshot.get(selectQuery.fingerprint());
+        assertEquals(1, selectMetrics.get(DatabaseListener.Operation.QUERY).count());
+        assertEquals(4, selectMetrics.get(DatabaseListener.Operation.FETCH).count());
+        assertEquals(1, selectMetrics.get(DatabaseListener.Operation.ITERATE).count());
+
+        Map<DatabaseListener.Operation, Histogram.Snapshot> transactionMetrics = snapshot.get(MetricsListener.transactionKey);
+        assertTrue(transactionMetrics.get(DatabaseListener.Operation.COMMIT).count() >= 1);
+        assertTrue(metrics.dump().contains(insertQuery.fingerprint()));
+    }
+
+    public void testSlowQueryLog() throws InterruptedException {
+        ArrayList<SlowQueryLog.Entry> entries = new ArrayList<>();
+        Properties properties = new Properties();
+        if (name.equals("sqlite")) properties.setProperty("open_mode", "1");
+
+        JdbcConnection explainConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .properties(properties)
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .build();
+
+        try (JdbcQueryPlanExplainer explainer = name.equals("sqlite")
+                ? JdbcQueryPlanExplainer.sqlite(explainConnection)
+                : JdbcQueryPlanExplainer.h2(explainConnection)) {
+            SlowQueryLog slowQueryLog = new SlowQueryLog(0, TimeUnit.NANOSECONDS,
+                    (parameter, value) -> parameter.equals("secret") ? "***" : value, explainer, entries::add);
+            Connection slowConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                    .accessorFactory(accessorFactory)
+                    .generatedKeysSelector(selector)
+                    .listener(slowQueryLog)
+                    .build();
+
+            try (Database database = slowConnection.write()) {
+                Query.of("CREATE TABLE s1 (a INTEGER, b VARCHAR(50))").on(database).execute();
+                Query insertQuery = Query.builder("INSERT INTO s1 (a, b) VALUES (:a, :secret)")
+                        .parameter("a", Integer.TYPE)
+                        .parameter("secret", String.class)
+                        .build();
+                Query selectQuery = Query.builder("SELECT a FROM s1 WHERE a > :a")
+                        .parameter("a", Integer.TYPE)
+                        .column("a", Integer.TYPE)
+                        .build();
+
+                for (int i = 0; i < 3; i++) insertQuery.on(database).bind("a", i).bind("secret", "hidden").execute();
+
+                SlowQueryLog.Entry insertEntry = entries.get(1);
+                assertEquals(insertQuery, insertEntry.query());
+                assertEquals(1, insertEntry.rows());
+                assertEquals("***", insertEntry.parameters().get("secret"));
+                assertEquals(0, insertEntry.parameters().get("a"));
+
+                // Plans are captured in the background, so repeat the query until its entries have one.
+                SlowQueryLog.Entry selectEntry = null;
+
+                for (int i = 0; i < 500 && (selectEntry == null || selectEntry.plan() == null); i++) {
+                    if (i > 0) Thread.sleep(10);
+
+                    try (Cursor cursor = selectQuery.on(database).bind("a", 0).query()) {
+                        while (cursor.next()) cursor.get("a");
+                    }
+
+                    selectEntry = entries.get(entries.size() - 1);
+                }
+
+                assertEquals(selectQuery, selectEntry.query());
+                assertEquals(2, selectEntry.rows());
+                assertNotNull(selectEntry.plan());
+                assertFalse(selectEntry.plan().isEmpty());
+
+                try (Cursor cursor = selectQuery.on(database).bind("a", 0).query()) {
+                    while (cursor.next()) cursor.get("a");
+                }
+
+                assertSame(selectEntry.plan(), entries.get(entries.size() - 1).plan());
+            }
+        }
+    }
+
+    public void testSlowQueryLogPlanBound() throws InterruptedException {
+        ArrayList<SlowQueryLog.Entry> entries = new ArrayList<>();
+        AtomicInteger explained = new AtomicInteger();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(0, TimeUnit.NANOSECONDS, (parameter, value) -> value,
+                (query, parameters) -> {
+                    if (explained.incrementAndGet() == 1) throw new DatabaseException("Explain failed");
+                    return "plan";
+                }, 1, entries::add);
+        Connection slowConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .listener(slowQueryLog)
+                .build();
+        Query firstQuery = Query.builder("SELECT 1 AS a").column("a", Integer.TYPE).build();
+        Query secondQuery = Query.builder("SELECT 2 AS b").column("b", Integer.TYPE).build();
+
+        try (Database database = slowConnection.write()) {
+            // The failed capture is not kept, so the plan is captured when the query is slow again.
+            for (int i = 0; i < 500 && (entries.isEmpty() || entries.get(entries.size() - 1).plan() == null); i++) {
+                if (i > 0) Thread.sleep(10);
+
+                try (Cursor cursor = firstQuery.on(database).query()) {
+                    while (cursor.next()) cursor.get("a");
+                }
+            }
+
+            assertEquals("plan", entries.get(entries.size() - 1).plan());
+            assertEquals(2, explained.get());
+
+            // The bound of one plan is reached, so the plans of other queries are not captured.
+            for (int i = 0; i < 3; i++) {
+                try (Cursor cursor = secondQuery.on(database).query()) {
+                    while (cursor.next()) cursor.get("b");
+                }
+            }
+
+            assertNull(entries.get(entries.size() - 1).plan());
+            assertEquals(2, explained.get());
+        }
+    }
+
+    public void testCompositeListener() {
+        MetricsListener compositeMetrics = new MetricsListener();
+        ArrayList<SlowQueryLog.Entry> entries = new ArrayList<>();
+        SlowQueryLog slowQueryLog = new SlowQueryLog(0, TimeUnit.NANOSECONDS, (parameter, value) -> value, null,
+                entries::add);
+        assertSame(slowQueryLog, DatabaseListener.of(slowQueryLog, DatabaseListener.NONE));
+        Connection compositeConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .listener(DatabaseListener.of(compositeMetrics, slowQueryLog))
+                .build();
+        Query insertQuery = Query.builder("INSERT INTO c1 (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+
+        try (Database database = compositeConnection.write()) {
+            Query.of("CREATE TABLE c1 (a INTEGER)").on(database).execute();
+            for (int i = 0; i < 3; i++) insertQuery.on(database).bind("a", i).execute();
+        }
+
+        Map<DatabaseListener.Operation, Histogram.Snapshot> insertMetrics =
+                compositeMetrics.snapshot().get(insertQuery.fingerprint());
+        assertEquals(3, insertMetrics.get(DatabaseListener.Operation.EXECUTE).count());
+        assertEquals(1, compositeMetrics.snapshot().get(MetricsListener.connectionKey)
+                .get(DatabaseListener.Operation.CONNECT).count());
+        assertEquals(4, entries.size());
+        assertEquals(insertQuery, entries.get(3).query());
+        assertEquals(2, entries.get(3).parameters().get("a"));
+    }
+
+    public void testJfrListener() throws IOException {
+        Connection jfrConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .listener(new JfrListener())
+                .build();
+        File recordingFile = File.createTempFile("test." + name, ".jfr");
+        Query insertQuery = Query.builder("INSERT INTO j1 (a) VALUES (:a)").parameter("a", Integer.TYPE).build();
+        Query selectQuery = Query.builder("SELECT a FROM j1").column("a", Integer.TYPE).build();
+
+        try (Recording recording = new Recording()) {
+            recording.enable("com.devexed.dalwit.Execute");
+            recording.enable("com.devexed.dalwit.Iterate");
+            recording.enable("com.devexed.dalwit.Commit");
+            recording.start();
+
+            try (Database database = jfrConnection.write()) {
+                Query.of("CREATE TABLE j1 (a INTEGER)").on(database).execute();
+
+                try (Transaction transaction = database.transact()) {
+                    for (int i = 0; i < 3; i++) insertQuery.on(transaction).bind("a", i).execute();
+                    transaction.commit();
+                }
+
+                try (Cursor cursor = selectQuery.on(database).query()) {
+                    while (cursor.next()) cursor.get("a");
+                }
+            }
+
+            recording.stop();
+            recording.dump(recordingFile.toPath());
+        }
+
+        try {
+            List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile.toPath());
+            int inserts = 0;
+            RecordedEvent iterateEvent = null;
+            RecordedEvent commitEvent = null;
+
+            for (RecordedEvent event : events) {
+                String eventName = event.getEventType().getName();
+
+                if (eventName.equals("com.devexed.dalwit.Execute")
+                        && insertQuery.fingerprint().equals(event.getString("fingerprint"))) {
+                    assertEquals(1, event.getInt("depth"));
+                    assertEquals(1, event.getLong("count"));
+                    inserts++;
+                } else if (eventName.equals("com.devexed.dalwit.Iterate")) {
+                    iterateEvent = event;
+                } else if (eventName.equals("com.devexed.dalwit.Commit")) {
+                    commitEvent = event;
+                }
+            }
+
+            assertEquals(3, inserts);
+            assertNotNull(iterateEvent);
+            assertEquals(selectQuery.fingerprint(), iterateEvent.getString("fingerprint"));
+            assertEquals(3, iterateEvent.getLong("count"));
+            assertNotNull(commitEvent);
+            assertEquals(1, commitEvent.getInt("depth"));
+        } finally {
+            if (!recordingFile.delete()) recordingFile.deleteOnExit();
+        }
+    }
+
+    public void testReadTransactionEndsOnClose() {
+        Query.of("CREATE TABLE rt (a INTEGER)").on(db).execute();
+        Query.of("INSERT INTO rt (a) VALUES (1)").on(db).execute();
+        Query countQuery = Query.builder("SELECT COUNT(*) AS c FROM rt").column("c", Long.TYPE).build();
+        // The SQLite driver only allows opening connections read only, rather than switching them after opening.
+        Properties properties = new Properties();
+        if (name.equals("sqlite")) properties.setProperty("open_mode", "1");
+
+        Connection readConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .properties(properties)
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .manualCommit(manualCommit)
+                .build();
+
+        try (ReadonlyDatabase reader = readConnection.read()) {
+            try (ReadonlyTransaction transaction = reader.transact();
+                 Cursor cursor = countQuery.on(transaction).query()) {
+                assertTrue(cursor.next());
+                assertEquals(1L, (long) cursor.<Long>get("c"));
+            }
+
+            // The closed read transaction must neither hold locks blocking the write nor keep its stale snapshot.
+            Query.of("INSERT INTO rt (a) VALUES (2)").on(db).execute();
+
+            try (ReadonlyTransaction transaction = reader.transact();
+                 Cursor cursor = countQuery.on(transaction).query()) {
+                assertTrue(cursor.next());
+                assertEquals(2L, (long) cursor.<Long>get("c"));
+            }
+        }
+    }
+
+    public void testNestedTransactionRollsBackQueryWrites() {
+        // H2 lets Java functions called from a query write through the connection running it.
+        if (!name.equals("h2")) return;
+
+        Query.of("CREATE TABLE qw (a INTEGER)").on(db).execute();
+        Query.of("CREATE ALIAS QW_INSERT FOR \"" + JdbcFileDatabaseTestCase.class.getName() + ".insertFromQuery\"")
+                .on(db).execute();
+        Query writeQuery = Query.builder("SELECT QW_INSERT(1) AS a").column("a", Integer.TYPE).build();
+        Query countQuery = Query.builder("SELECT COUNT(*) AS c FROM qw").column("c", Long.TYPE).readOnly(true).build();
+
+        try (Transaction transaction = db.transact()) {
+            try (Transaction nested = transaction.transact();
+                 Cursor cursor = writeQuery.on(nested).query()) {
+                assertTrue(cursor.next());
+            }
+
+            // The nested transaction was rolled back, taking the write of its query with it.
+            try (Cursor cursor = countQuery.on(transaction).query()) {
+                assertTrue(cursor.next());
+                assertEquals(0L, (long) cursor.<Long>get("c"));
+            }
+
+            transaction.commit();
+        }
+    }
+
+    public static int insertFromQuery(java.sql.Connection connection, int a) throws SQLException {
+        try (java.sql.PreparedStatement statement = connection.prepareStatement("INSERT INTO qw (a) VALUES (?)")) {
+            statement.setInt(1, a);
+
+            return statement.executeUpdate();
+        }
+    }
+
+    public void testLoadTestHarness() throws InterruptedException {
+        Connection loadConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .manualCommit(manualCommit)
+                .build();
+        LoadTestHarness harness = new LoadTestHarness(4, 300, 0.5, 5, 100);
+        harness.populate(loadConnection);
+        LoadTestHarness.Result result = harness.run(loadConnection);
+
+        assertTrue(result.reads().count() > 0);
+        assertTrue(result.writes().count() > 0);
+        assertTrue(result.throughput() > 0);
+        // Each exhausted write was retried the maximum number of times, five, before giving up.
+        assertTrue(result.exhausted() * 5 <= result.retries());
+
+        try (Cursor cursor = Query.builder("SELECT SUM(v) AS total FROM load")
+                .column("total", Long.class)
+                .on(db)
+                .query()) {
+            assertTrue(cursor.next());
+            assertEquals(Long.valueOf(result.writes().count() * 5), cursor.<Long>get("total"));
+        }
+    }
+
+    /**
+     * Measure the mean number of bytes allocated by the current thread per run of an operation, after warming it up
+     * so the measurement reflects compiled code.
+     *
+     * @return The mean number of bytes, or -1 if the JVM can not measure the memory allocated by a thread.
+     */
+    private static long allocatedBytesPerOperation(Runnable operation) {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) return -1;
+
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) threadBean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) return -1;
+
+        long threadId = Thread.currentThread().getId();
+        int operations = 100000;
+
+        for (int i = 0; i < operations; i++) operation.run();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < operations; i++) operation.run();
+        long after = threads.getThreadAllocatedBytes(threadId);
+
+        return (after - before) / operations;
+    }
+
+    public void testAllocationBudgets() {
+        Query.of("CREATE TABLE \"ab\" (\"a\" INTEGER, \"b\" VARCHAR(50), \"c\" BLOB)").on(db).execute();
+        Query.of("INSERT INTO \"ab\" (\"a\", \"b\", \"c\") VALUES (7, 'b', X'0102')").on(db).execute();
+        ObjectDescriptor<ObjectDescriptorTest> descriptor = ObjectDescriptor.of(ObjectDescriptorTest.class, "ab");
+        long[] budgets = allocationBudgets.get(name);
+        Integer value = 7;
+
+        try (Statement statement = db.prepare(descriptor.insert().build())) {
+            assertAllocationBudget("bind", budgets[0], allocatedBytesPerOperation(() -> statement.bind("a", value)));
+        }
+
+        try (Cursor cursor = descriptor.select().on(db).query()) {
+            assertTrue(cursor.next());
+            ObjectGetter<ObjectDescriptorTest> getter = descriptor.getter(cursor);
+            assertAllocationBudget("Cursor.get", budgets[1], allocatedBytesPerOperation(() -> cursor.get("a")));
+            assertAllocationBudget("ObjectGetter.get", budgets[2], allocatedBytesPerOperation(getter::get));
+        }
+    }
+
+    public void testNameMappingDoesNotAllocate() {
+        ColumnNameMapper columnNameMapper = new DefaultColumnNameMapper();
+        SnakeCaseObjectColumnMapper objectColumnMapper = new SnakeCaseObjectColumnMapper();
+        assertEquals("firstName", columnNameMapper.apply("first_name"));
+        assertEquals("first_name", objectColumnMapper.apply("firstName"));
+
+        assertAllocationBudget("snake case column mapping", 0,
+                allocatedBytesPerOperation(() -> columnNameMapper.apply("first_name")));
+        assertAllocationBudget("canonical column mapping", 0,
+                allocatedBytesPerOperation(() -> columnNameMapper.apply("firstname")));
+        assertAllocationBudget("camel case field mapping", 0,
+                allocatedBytesPerOperation(() -> objectColumnMapper.apply("firstName")));
+    }
+
+    private void assertAllocationBudget(String operation, long budget, long allocated) {
+        if (allocated < 0) return;
+
+        assertTrue(name + " " + operation + " allocated " + allocated + " bytes per operation, exceeding its budget of "
+                + budget + " bytes", allocated <= budget + allocationSlack);
+    }
+
+    public void testVerifyLifecycle() throws ClassNotFoundException, SQLException {
+        Class.forName(driver);
+        java.sql.Connection jdbcConnection = DriverManager.getConnection(prefix + file.getAbsolutePath());
+
+        try (Database database = JdbcTestDatabases.verifyingLifecycle(jdbcConnection, accessorFactory, selector);
+             Statement statement = database.prepare(Query.of("CREATE TABLE v1 (a INTEGER)"))) {
+            statement.execute();
+
+            // Close the JDBC connection behind the database's back.
+            jdbcConnection.close();
+
+            try {
+                statement.execute();
+                fail("Expected the closed JDBC connection to be detected");
+            } catch (DatabaseException e) {
+                assertTrue(e.getMessage(), e.getMessage().contains("closed while"));
+            }
+        }
+    }
+
+    public void testFailedOpenClosesConnection() throws ClassNotFoundException, SQLException {
+        Class.forName(driver);
+        java.sql.Connection jdbcConnection = DriverManager.getConnection(prefix + file.getAbsolutePath());
+        java.sql.Connection failingConnection = (java.sql.Connection) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class<?>[]{java.sql.Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("setAutoCommit")) throw new SQLException("Auto commit failed");
+
+                    try {
+                        return method.invoke(jdbcConnection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+
+        try {
+            JdbcTestDatabases.manualCommit(failingConnection, accessorFactory, selector);
+            fail("Expected the failure to disable auto commit to fail opening the database");
+        } catch (DatabaseException e) {
+            // Expected
+        }
+
+        assertTrue(jdbcConnection.isClosed());
+    }
+
+    public void testArrayParameter() {
+        // SQLite has no array type.
+        if (!name.equals("h2")) return;
+
+        Query.of("CREATE TABLE ap (a BIGINT)").on(db).execute();
+        Query.of("INSERT INTO ap (a) VALUES (1), (2), (3), (4), (5)").on(db).execute();
+        Query query = Query.builder("SELECT a FROM ap WHERE ARRAY_CONTAINS(:as, a) ORDER BY a")
+                .parameter("as", long[].class)
+                .column("a", Long.TYPE)
+                .build();
+
+        try (Statement statement = db.prepare(query)) {
+            statement.bind("as", new long[]{1, 3, 5});
+            assertEquals(Arrays.asList(1L, 3L, 5L), selectLongs(statement));
+
+            statement.bind("as", Arrays.asList(2L, 4L));
+            assertEquals(Arrays.asList(2L, 4L), selectLongs(statement));
+
+            try {
+                statement.bind("as", 1L);
+                fail("Expected binding a single value to an array parameter to fail");
+            } catch (DatabaseException e) {
+                // Expected
+            }
+        }
+
+        try (Cursor cursor = Query.builder("SELECT (1, 2, 3) AS b").column("b", int[].class).build().on(db).query()) {
+            assertTrue(cursor.next());
+            assertTrue(Arrays.equals(new int[]{1, 2, 3}, cursor.<int[]>get("b")));
+        }
+    }
+
+    public void testRowBatchUsesCustomAccessors() {
+        // Custom accessors may convert values, so batches must not read around them with the primitive getters.
+        Accessor<PreparedStatement, ResultSet, SQLException> tens = new Accessor<PreparedStatement, ResultSet, SQLException>() {
+            @Override
+            public void set(PreparedStatement statement, int index, Object value) throws SQLException {
+                statement.setInt(index + 1, (Integer) value / 10);
+            }
+
+            @Override
+            public Object get(ResultSet resultSet, int index) throws SQLException {
+                return resultSet.getInt(index + 1) * 10;
+            }
+        };
+        Connection customConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(type -> type == Integer.TYPE ? tens : accessorFactory.create(type))
+                .generatedKeysSelector(selector)
+                .build();
+        Query selectQuery = Query.builder("SELECT 1 AS a, 2 AS b").column("a", Integer.TYPE).column("b", Long.TYPE).build();
+
+        try (Database database = customConnection.write();
+             ReadonlyStatement statement = database.prepare(selectQuery);
+             Cursor cursor = statement.query()) {
+            RowBatch batch = new RowBatch(4, selectQuery.columns());
+            assertEquals(1, cursor.fetch(batch));
+            assertEquals(10, batch.ints(batch.column("a"))[0]);
+            assertEquals(2, batch.longs(batch.column("b"))[0]);
+        }
+    }
+
+    public void testScrollableResult() {
+        // The SQLite driver only supports forward only results.
+        if (!name.equals("h2")) return;
+
+        Query.of("CREATE TABLE sr (a INTEGER)").on(db).execute();
+        Query.of("INSERT INTO sr (a) VALUES (1), (2), (3), (4)").on(db).execute();
+        Query query = Query.builder("SELECT a FROM sr ORDER BY a")
+                .column("a", Integer.TYPE)
+                .resultType(Query.ResultType.SCROLLABLE)
+                .build();
+
+        try (Cursor cursor = query.on(db).query()) {
+            assertTrue(cursor.seek(3));
+            assertEquals(3, (int) cursor.<Integer>get("a"));
+            assertTrue(cursor.previous());
+            assertEquals(2, (int) cursor.<Integer>get("a"));
+        }
+    }
+
+    /**
+     * @return A query which takes far longer than any test to run.
+     */
+    private Query.QueryBuilder slowQuery() {
+        String sql = name.equals("h2")
+                ? "SELECT COUNT(*) AS c FROM SYSTEM_RANGE(1, 100000) a, SYSTEM_RANGE(1, 100000) b WHERE a.X + b.X = 3"
+                : "WITH RECURSIVE r(x) AS (SELECT 1 UNION ALL SELECT x + 1 FROM r WHERE x < 1000000000) "
+                + "SELECT COUNT(*) AS c FROM r";
+
+        return Query.builder(sql).column("c", Long.TYPE);
+    }
+
+    public void testQueryTimeout() {
+        long start = System.nanoTime();
+
+        try (Cursor cursor = slowQuery().timeout(200, TimeUnit.MILLISECONDS).build().on(db).query()) {
+            cursor.next();
+            fail("Expected the query to time out");
+        } catch (QueryTimeoutException e) {
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(10));
+        }
+    }
+
+    public void testTransactionDeadline() throws InterruptedException {
+        try (Transaction transaction = db.transact(1, TimeUnit.MILLISECONDS)) {
+            Thread.sleep(5);
+
+            try (Transaction child = transaction.transact()) {
+                Query.of("CREATE TABLE td (a INTEGER)").on(child).execute();
+                fail("Expected the transaction deadline to have passed");
+            } catch (QueryTimeoutException e) {
+                // Expected
+            }
+        }
+
+        try (Transaction transaction = db.transact(200, TimeUnit.MILLISECONDS);
+             Cursor cursor = slowQuery().build().on(transaction).query()) {
+            cursor.next();
+            fail("Expected the query to run past the transaction deadline");
+        } catch (QueryTimeoutException e) {
+            // Expected
+        }
+    }
+
+    public void testCancel() throws InterruptedException {
+        try (ReadonlyStatement statement = db.prepare(slowQuery().build())) {
+            Thread canceller = new Thread(() -> {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    return;
+                }
+
+                statement.cancel();
+            });
+            canceller.start();
+
+            try (Cursor cursor = statement.query()) {
+                cursor.next();
+                fail("Expected the query to be cancelled");
+            } catch (QueryCancelledException e) {
+                // Expected
+            }
+
+            canceller.join();
+        }
+    }
+
+    public void testCancelBeforeExecution() {
+        // Cancel from the probe, after the query has been called but before it reaches the driver.
+        AtomicReference<ReadonlyStatement> target = new AtomicReference<>();
+        Connection cancellingConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .listener(new DatabaseListener() {
+                    @Override
+                    public Probe statement(Query query, int depth) {
+                        return new Probe() {
+                            @Override
+                            public void begin(Operation operation) {
+                                if (operation != Operation.QUERY) return;
+
+                                ReadonlyStatement statement = target.getAndSet(null);
+                                if (statement != null) statement.cancel();
+                            }
+                        };
+                    }
+                })
+                .build();
+        Query selectQuery = Query.builder("SELECT 1 AS a").column("a", Integer.TYPE).build();
+
+        try (Database database = cancellingConnection.write();
+             ReadonlyStatement statement = database.prepare(selectQuery)) {
+            statement.cancel();
+
+            try (Cursor cursor = statement.query()) {
+                assertTrue(cursor.next());
+            }
+
+            target.set(statement);
+
+            try (Cursor cursor = statement.query()) {
+                cursor.next();
+                fail("Expected the query to be cancelled");
+            } catch (QueryCancelledException e) {
+                // Expected
+            }
+
+            try (Cursor cursor = statement.query()) {
+                assertTrue(cursor.next());
+                assertEquals(1, (int) cursor.<Integer>get("a"));
+            }
+        }
+    }
+
+    public void testQueryRecoversFromRuntimeFailure() throws InterruptedException {
+        // A column name mapper failing once, after the query has executed and its timeout is enforced.
+        AtomicBoolean failMapping = new AtomicBoolean(true);
+        Connection failingConnection = JdbcConnection.builder(driver, prefix + file.getAbsolutePath())
+                .accessorFactory(accessorFactory)
+                .generatedKeysSelector(selector)
+                .columnNameMapper(column -> {
+                    if (failMapping.getAndSet(false)) throw new IllegalStateException("Mapping failed");
+
+                    return column;
+                })
+                .build();
+        Query selectQuery = Query.builder("SELECT 1 AS a")
+                .column("a", Integer.TYPE)
+                .timeout(500, TimeUnit.MILLISECONDS)
+                .build();
+
+        try (Database database = failingConnection.write();
+             ReadonlyStatement statement = database.prepare(selectQuery)) {
+            try {
+                statement.query();
+                fail("Expected the column name mapper to fail");
+            } catch (IllegalStateException e) {
+                // Expected
+            }
+
+            // The watchdog of the failed execution would fire while the next execution is still within its timeout.
+            Thread.sleep(300);
+
+            try (Cursor cursor = statement.query()) {
+                Thread.sleep(350);
+                assertTrue(cursor.next());
+                assertEquals(1, (int) cursor.<Integer>get("a"));
+            }
+        }
+    }
+
+    private static List<Long> selectLongs(Statement statement) {
+        ArrayList<Long> values = new ArrayList<>();
+
+        try (Cursor cursor = statement.query()) {
+            while (cursor.next()) values.add(cursor.get("a"));
+        }
+
+        return values;
+    }
+
 }
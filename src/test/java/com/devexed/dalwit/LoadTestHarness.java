@@ -0,0 +1,270 @@
+package com.devexed.dalwit;
+
+import com.devexed.dalwit.jdbc.JdbcConnection;
+import com.devexed.dalwit.util.Histogram;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * <p>Drives a mixed read and write workload from multiple threads against a connection, each thread using its own
+ * database. Reads select a random row of a <code>load</code> table and writes update a number of random rows in a
+ * transaction, retried on transient failures with a {@link RetryPolicy} of each run's own. Reads failing and writes
+ * exhausting their retries because the database is busy are counted rather than stopping the run.</p>
+ * <p>Run {@link #main} for a standalone load test against a file-backed database, configured with system properties:
+ * <code>dalwit.load.driver</code> (<code>sqlite</code> or <code>h2</code>), <code>dalwit.load.manualCommit</code>,
+ * <code>dalwit.load.threads</code>, <code>dalwit.load.seconds</code>, <code>dalwit.load.readRatio</code>,
+ * <code>dalwit.load.transactionSize</code> and <code>dalwit.load.rows</code>.</p>
+ */
+public final class LoadTestHarness {
+
+    private static final int maxRetries = 5;
+    private static final Query createQuery = Query.of("CREATE TABLE load (id INTEGER PRIMARY KEY, v BIGINT)");
+    private static final Query insertQuery = Query.builder("INSERT INTO load (id, v) VALUES (:id, 0)")
+            .parameter("id", Integer.TYPE)
+            .build();
+    private static final Query readQuery = Query.builder("SELECT v FROM load WHERE id = :id")
+            .parameter("id", Integer.TYPE)
+            .column("v", Long.TYPE)
+            .build();
+    private static final Query writeQuery = Query.builder("UPDATE load SET v = v + 1 WHERE id = :id")
+            .parameter("id", Integer.TYPE)
+            .build();
+
+    private final int threads;
+    private final long duration;
+    private final double readRatio;
+    private final int transactionSize;
+    private final int rows;
+
+    /**
+     * @param threads         The number of threads performing operations.
+     * @param duration        How long to run the workload, in milliseconds.
+     * @param readRatio       The ratio of operations which are reads, between 0 and 1.
+     * @param transactionSize The number of rows updated by each write transaction.
+     * @param rows            The number of rows in the table.
+     */
+    public LoadTestHarness(int threads, long duration, double readRatio, int transactionSize, int rows) {
+        this.threads = threads;
+        this.duration = duration;
+        this.readRatio = readRatio;
+        this.transactionSize = transactionSize;
+        this.rows = rows;
+    }
+
+    /**
+     * Create and fill the table used by the workload.
+     *
+     * @param connection The connection to the database.
+     */
+    public void populate(Connection connection) {
+        try (Database database = connection.write()) {
+            createQuery.on(database).execute();
+
+            try (Transaction transaction = database.transact();
+                 Statement statement = transaction.prepare(insertQuery)) {
+                ReadonlyStatement.Binder<Integer> id = statement.binder("id");
+
+                for (int i = 0; i < rows; i++) {
+                    id.bind(i);
+                    statement.execute();
+                }
+
+                transaction.commit();
+            }
+        }
+    }
+
+    /**
+     * Run the workload on a populated database.
+     *
+     * @param connection The connection to the database.
+     * @return The result of the run.
+     * @throws DatabaseException The first non-transient failure of any thread.
+     */
+    public Result run(Connection connection) throws InterruptedException {
+        // A policy of its own per run, since the shared default policy's counters include every earlier run.
+        RetryPolicy policy = new RetryPolicy(maxRetries, 10, 1000, TimeUnit.MILLISECONDS);
+        Histogram readLatencies = new Histogram();
+        Histogram writeLatencies = new Histogram();
+        AtomicLong busyReads = new AtomicLong();
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        CountDownLatch start = new CountDownLatch(1);
+        ArrayList<Thread> workers = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+
+                try (Database database = connection.write()) {
+                    start.await();
+                    long end = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(duration);
+
+                    while (System.nanoTime() < end && failure.get() == null) {
+                        long operationStart = System.nanoTime();
+
+                        if (random.nextDouble() < readRatio) {
+                            try (Cursor cursor = readQuery.on(database).bind("id", random.nextInt(rows)).query()) {
+                                while (cursor.next()) cursor.get("v");
+                            } catch (DatabaseException e) {
+                                if (!RetryPolicy.isTransient(e)) throw e;
+
+                                busyReads.incrementAndGet();
+                                continue;
+                            }
+
+                            readLatencies.record(System.nanoTime() - operationStart);
+                        } else {
+                            try {
+                                database.transact(transaction -> {
+                                    for (int j = 0; j < transactionSize; j++) {
+                                        writeQuery.on(transaction).bind("id", random.nextInt(rows)).update();
+                                    }
+
+                                    return null;
+                                }, policy);
+                            } catch (DatabaseException e) {
+                                // Counted by the policy as exhausted.
+                                if (!RetryPolicy.isTransient(e)) throw e;
+
+                                continue;
+                            }
+
+                            writeLatencies.record(System.nanoTime() - operationStart);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    failure.compareAndSet(null, e);
+                }
+            }, "dalwit-load-" + i);
+            worker.start();
+            workers.add(worker);
+        }
+
+        long runStart = System.nanoTime();
+        start.countDown();
+        for (Thread worker : workers) worker.join();
+        long elapsed = System.nanoTime() - runStart;
+
+        if (failure.get() != null) throw failure.get();
+
+        return new Result(elapsed, readLatencies.snapshot(), writeLatencies.snapshot(),
+                busyReads.get(), policy.retries(), policy.exhausted());
+    }
+
+    public static void main(String[] args) throws Exception {
+        String driver = System.getProperty("dalwit.load.driver", "sqlite");
+        boolean manualCommit = Boolean.getBoolean("dalwit.load.manualCommit");
+        LoadTestHarness harness = new LoadTestHarness(
+                Integer.getInteger("dalwit.load.threads", 8),
+                TimeUnit.SECONDS.toMillis(Integer.getInteger("dalwit.load.seconds", 10)),
+                Double.parseDouble(System.getProperty("dalwit.load.readRatio", "0.8")),
+                Integer.getInteger("dalwit.load.transactionSize", 10),
+                Integer.getInteger("dalwit.load.rows", 10000));
+        File file = File.createTempFile("load." + driver, ".db");
+
+        try {
+            Connection connection = JdbcConnection.builder(
+                    driver.equals("h2") ? "org.h2.Driver" : "org.sqlite.JDBC",
+                    (driver.equals("h2") ? "jdbc:h2:" : "jdbc:sqlite:") + file.getAbsolutePath())
+                    .properties(new Properties())
+                    .manualCommit(manualCommit)
+                    .build();
+            harness.populate(connection);
+            System.out.println(harness.run(connection));
+        } finally {
+            if (!file.delete()) file.deleteOnExit();
+        }
+    }
+
+    /**
+     * The throughput, latencies and contention of a run.
+     */
+    public static final class Result {
+
+        private final long elapsed;
+        private final Histogram.Snapshot reads;
+        private final Histogram.Snapshot writes;
+        private final long busy;
+        private final long retries;
+        private final long exhausted;
+
+        private Result(long elapsed, Histogram.Snapshot reads, Histogram.Snapshot writes, long busy, long retries,
+                       long exhausted) {
+            this.elapsed = elapsed;
+            this.reads = reads;
+            this.writes = writes;
+            this.busy = busy;
+            this.retries = retries;
+            this.exhausted = exhausted;
+        }
+
+        /**
+         * @return The number of completed operations per second.
+         */
+        public double throughput() {
+            return (reads.count() + writes.count()) / (elapsed / 1e9);
+        }
+
+        /**
+         * @return The latencies of successful reads in nanoseconds.
+         */
+        public Histogram.Snapshot reads() {
+            return reads;
+        }
+
+        /**
+         * @return The latencies of successful write transactions in nanoseconds, including retries.
+         */
+        public Histogram.Snapshot writes() {
+            return writes;
+        }
+
+        /**
+         * @return The number of reads which failed because the database was busy or locked.
+         */
+        public long busy() {
+            return busy;
+        }
+
+        /**
+         * @return The number of retried write transactions.
+         */
+        public long retries() {
+            return retries;
+        }
+
+        /**
+         * @return The number of write transactions which failed after exhausting their retries.
+         */
+        public long exhausted() {
+            return exhausted;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("throughput %.0f ops/s, busy %d, retries %d, exhausted %d%n", throughput(), busy,
+                    retries, exhausted)
+                    + "operation\tcount\tp50 us\tp99 us\tp99.9 us\tmax us\n"
+                    + row("read", reads) + row("write", writes);
+        }
+
+        private static String row(String operation, Histogram.Snapshot snapshot) {
+            return operation + '\t' + snapshot.count()
+                    + '\t' + TimeUnit.NANOSECONDS.toMicros(snapshot.percentile(50))
+                    + '\t' + TimeUnit.NANOSECONDS.toMicros(snapshot.percentile(99))
+                    + '\t' + TimeUnit.NANOSECONDS.toMicros(snapshot.percentile(99.9))
+                    + '\t' + TimeUnit.NANOSECONDS.toMicros(snapshot.max()) + '\n';
+        }
+
+    }
+
+}
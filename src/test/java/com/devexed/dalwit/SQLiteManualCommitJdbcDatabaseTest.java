@@ -0,0 +1,13 @@
+package com.devexed.dalwit;
+
+import com.devexed.dalwit.jdbc.DefaultJdbcAccessorFactory;
+import com.devexed.dalwit.jdbc.FunctionJdbcGeneratedKeysSelector;
+
+public final class SQLiteManualCommitJdbcDatabaseTest extends JdbcFileDatabaseTestCase {
+
+    public SQLiteManualCommitJdbcDatabaseTest() {
+        super("sqlite", "org.sqlite.JDBC", "jdbc:sqlite:", new DefaultJdbcAccessorFactory(),
+                new FunctionJdbcGeneratedKeysSelector("last_insert_rowid()", Long.TYPE), true);
+    }
+
+}
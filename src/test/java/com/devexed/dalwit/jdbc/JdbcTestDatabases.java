@@ -0,0 +1,41 @@
+package com.devexed.dalwit.jdbc;
+
+import com.devexed.dalwit.AccessorFactory;
+import com.devexed.dalwit.Database;
+import com.devexed.dalwit.DatabaseListener;
+import com.devexed.dalwit.DefaultColumnNameMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Opens databases on JDBC connections held by tests, which {@link JdbcConnection} keeps to itself.
+ */
+public final class JdbcTestDatabases {
+
+    private JdbcTestDatabases() {
+    }
+
+    /**
+     * Open a database verifying its lifecycle against the driver on an existing JDBC connection.
+     */
+    public static Database verifyingLifecycle(Connection connection,
+                                              AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory,
+                                              JdbcGeneratedKeysSelector generatedKeysSelector) {
+        return new JdbcDatabase(false, connection, accessorFactory, generatedKeysSelector, new DefaultColumnNameMapper(),
+                false, DatabaseListener.NONE, true);
+    }
+
+    /**
+     * Open a database in manual commit mode on an existing JDBC connection.
+     */
+    public static Database manualCommit(Connection connection,
+                                        AccessorFactory<PreparedStatement, ResultSet, SQLException> accessorFactory,
+                                        JdbcGeneratedKeysSelector generatedKeysSelector) {
+        return new JdbcDatabase(false, connection, accessorFactory, generatedKeysSelector, new DefaultColumnNameMapper(),
+                true, DatabaseListener.NONE, false);
+    }
+
+}